@@ -0,0 +1,68 @@
+package se.nackademin.stringify.controller.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.util.DateUtil;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the payload of a broadcast message written field by field by {@code BroadcastPublisher} with the
+ * serialization of the same {@code MessageDto} by the object mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private ObjectMapper objectMapper;
+    private BroadcastPublisher broadcastPublisher;
+    private MessageDto message;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        broadcastPublisher = new BroadcastPublisher(
+                new SimpMessagingTemplate(new ExecutorSubscribableChannel()), objectMapper);
+        message = Message.builder()
+                .guid(UUID.randomUUID())
+                .sender("John Doe")
+                .avatar("avatar1")
+                .content("Hello there!")
+                .date(DateUtil.now())
+                .build()
+                .convertToDto();
+    }
+
+    @Benchmark
+    public byte[] encodeMessage() {
+        return broadcastPublisher.encode(message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] encodeMessageContended() {
+        return broadcastPublisher.encode(message);
+    }
+
+    @Benchmark
+    public byte[] legacySerializeMessageDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] legacySerializeMessageDtoContended() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+}
@@ -0,0 +1,46 @@
+package se.nackademin.stringify.dto;
+
+import org.openjdk.jmh.annotations.*;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.util.DateUtil;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions between messages and their data transfer objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private Message message;
+    private MessageDto messageDto;
+
+    @Setup
+    public void setUp() {
+        message = Message.builder()
+                .id(UUID.randomUUID())
+                .guid(UUID.randomUUID())
+                .sender("John Doe")
+                .avatar("avatar1")
+                .date(DateUtil.now())
+                .content("Hello there!")
+                .build();
+        messageDto = message.convertToDto();
+    }
+
+    @Benchmark
+    public MessageDto messageConvertToDto() {
+        return message.convertToDto();
+    }
+
+    @Benchmark
+    public Message messageDtoConvertToEntity() {
+        return messageDto.convertToEntity();
+    }
+}
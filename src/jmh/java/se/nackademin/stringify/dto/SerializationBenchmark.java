@@ -0,0 +1,62 @@
+package se.nackademin.stringify.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.util.DateUtil;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization of the payloads broadcast to a chat session, using an
+ * {@code ObjectMapper} configured the way Spring configures its message converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private MessageDto messageDto;
+    private ConnectionNotice connectionNotice;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messageDto = MessageDto.builder()
+                .guid(UUID.randomUUID())
+                .from("John Doe")
+                .avatar("avatar1")
+                .date(DateUtil.stringValueOfNow())
+                .content("Hello there!")
+                .build();
+        ProfileDto profileDto = ProfileDto.builder()
+                .guid(UUID.randomUUID())
+                .name("John Doe")
+                .avatar("avatar1")
+                .build();
+        connectionNotice = new ConnectionNotice(profileDto, MessageDto.builder()
+                .guid(UUID.randomUUID())
+                .from("Notice")
+                .avatar("connect")
+                .date(DateUtil.stringValueOfNow())
+                .content("John Doe has connected to the meeting.")
+                .build());
+    }
+
+    @Benchmark
+    public byte[] serializeMessageDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(messageDto);
+    }
+
+    @Benchmark
+    public byte[] serializeConnectionNotice() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(connectionNotice);
+    }
+}
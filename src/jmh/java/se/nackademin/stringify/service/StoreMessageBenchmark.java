@@ -0,0 +1,92 @@
+package se.nackademin.stringify.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import se.nackademin.stringify.StringifyApplication;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code LiveCommunicationService.storeMessage()} end to end against an embedded H2 database
+ * running in PostgreSQL mode, with and without write-behind, the SQL echo of the default profile and the
+ * JDBC batching of the {@code batching} profile, so that the effect of each setting of the {@code prod}
+ * profile can be told apart. The PostgreSQL driver settings of the profile are left out, since H2 rejects
+ * unknown connection properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreMessageBenchmark {
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    @Param({"false", "true"})
+    public boolean showSql;
+
+    @Param({"false", "true"})
+    public boolean batching;
+
+    private ConfigurableApplicationContext context;
+    private LiveCommunicationService liveCommunicationService;
+    private UUID chatSessionGuid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(StringifyApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.datasource.jdbc-url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "app.datasource.username=sa",
+                        "app.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.show-sql=" + showSql,
+                        "spring.flyway.enabled=false",
+                        "app.messages.partitions.enabled=false",
+                        "app.messages.write-behind.enabled=" + writeBehind);
+        if (batching)
+            builder.profiles("batching");
+
+        context = builder.run();
+        liveCommunicationService = context.getBean(LiveCommunicationService.class);
+        chatSessionGuid = context.getBean(MeetingService.class)
+                .createNewMeeting(Profile.builder()
+                        .guid(UUID.randomUUID())
+                        .name("John Doe")
+                        .avatar("avatar1")
+                        .build())
+                .getChatSession()
+                .getGuid();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MessageDto storeMessage() {
+        return liveCommunicationService.storeMessage(chatSessionGuid, Message.builder()
+                .sender("John Doe")
+                .avatar("avatar1")
+                .content("Hello there!")
+                .build());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public MessageDto storeMessageContended() {
+        return storeMessage();
+    }
+}
@@ -0,0 +1,84 @@
+package se.nackademin.stringify.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the date formatting done for every message sent to a chat session, and for a page of history
+ * spread over a few hours, against the formatting used before the date strings were cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilBenchmark {
+
+    private static final int HISTORY_SIZE = 1024;
+
+    private Timestamp date;
+    private Timestamp[] history;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        date = DateUtil.now();
+        history = new Timestamp[HISTORY_SIZE];
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history[i] = new Timestamp(date.getTime() - i * 15_000L);
+        }
+    }
+
+    @Benchmark
+    public String dateToString() {
+        return DateUtil.dateToString(date);
+    }
+
+    @Benchmark
+    public String stringValueOfNow() {
+        return DateUtil.stringValueOfNow();
+    }
+
+    @Benchmark
+    public String historyToString() {
+        return DateUtil.dateToString(history[next++ & (HISTORY_SIZE - 1)]);
+    }
+
+    @Benchmark
+    public Timestamp now() {
+        return DateUtil.now();
+    }
+
+    @Benchmark
+    public String legacyDateToString() {
+        return legacyDateToString(date);
+    }
+
+    @Benchmark
+    public String legacyHistoryToString() {
+        return legacyDateToString(history[next++ & (HISTORY_SIZE - 1)]);
+    }
+
+    @Benchmark
+    public String legacyStringValueOfNow() {
+        return legacyDateToString(new Timestamp(new Date().getTime()));
+    }
+
+    @Benchmark
+    public Timestamp legacyNow() {
+        return new Timestamp(new Date().getTime());
+    }
+
+    /**
+     * The implementation of {@code DateUtil.dateToString()} before the formatted dates were cached.
+     */
+    private static String legacyDateToString(Timestamp date) {
+        String stringDate = date.toString();
+
+        return stringDate.substring(0, stringDate.lastIndexOf(":"));
+    }
+}
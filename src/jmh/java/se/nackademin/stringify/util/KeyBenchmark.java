@@ -0,0 +1,71 @@
+package se.nackademin.stringify.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@code Key.generate()} with the previous shuffle-based implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyBenchmark {
+
+    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + "01234567";
+    private static final int KEY_LENGTH = 6;
+
+    @Benchmark
+    public Key generate() {
+        return Key.generate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Key generateContended() {
+        return Key.generate();
+    }
+
+    @Benchmark
+    public Key legacyGenerate() {
+        return legacyKey();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Key legacyGenerateContended() {
+        return legacyKey();
+    }
+
+    /**
+     * The implementation of {@code Key.generate()} before the generator was rewritten.
+     */
+    private static Key legacyKey() {
+        List<String> alphaNum = ALPHANUMERIC.chars()
+                .mapToObj(Character::toString)
+                .collect(Collectors.toList());
+        Collections.shuffle(alphaNum);
+        StringBuilder key = new StringBuilder(KEY_LENGTH);
+
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            int index = new Random().nextInt(alphaNum.size());
+
+            if (i == KEY_LENGTH - 1) {
+                if (key.chars().noneMatch(Character::isDigit)) {
+                    key.append(new Random().nextInt(9));
+                    return new Key(key.toString());
+                }
+            }
+            key.append(alphaNum.get(index));
+        }
+
+        return new Key(key.toString());
+    }
+}
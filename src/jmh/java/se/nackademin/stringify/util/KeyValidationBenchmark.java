@@ -0,0 +1,47 @@
+package se.nackademin.stringify.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@code Key.isValidKey()} with the previous regex-based implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyValidationBenchmark {
+
+    /**
+     * A valid key, a key rejected by its last character and a key of the wrong length
+     */
+    @Param({"HC94F2", "HC94Fz", "HC94F2X"})
+    public String candidate;
+
+    @Benchmark
+    public boolean isValidKey() {
+        return Key.isValidKey(candidate);
+    }
+
+    @Benchmark
+    public boolean legacyIsValidKey() {
+        return legacyIsValidKey(candidate);
+    }
+
+    /**
+     * The implementation of {@code Key.isValidKey()} before the validator was rewritten.
+     */
+    private static boolean legacyIsValidKey(String value) {
+        if (value.length() != 6)
+            return false;
+
+        Pattern pattern = Pattern.compile("^(?=.*\\d)(?=.*[A-Z])(?!.*[-,.&/():;_*+><=!?#£$%½{}`´ ])(?!.*[a-z]).{0,6}$");
+        Matcher matcher = pattern.matcher(value);
+        return matcher.matches();
+    }
+}
@@ -2,8 +2,10 @@ package se.nackademin.stringify;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class StringifyApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,82 @@
+package se.nackademin.stringify.cache;
+
+import lombok.Getter;
+import se.nackademin.stringify.domain.ChatSession;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory snapshot of a live chat session together with the guids of its connected profiles.
+ */
+@Getter
+public class ActiveSession {
+
+    private final UUID id;
+    private final UUID guid;
+    private final String key;
+    private final String connectUrl;
+    private final Timestamp created;
+    private final Integer maxConnections;
+    private final Set<UUID> profilesConnected = ConcurrentHashMap.newKeySet();
+    private volatile long lastAccess;
+
+    ActiveSession(ChatSession chatSession, Collection<UUID> profileGuids) {
+        this.id = chatSession.getId();
+        this.guid = chatSession.getGuid();
+        this.key = chatSession.getKey();
+        this.connectUrl = chatSession.getConnectUrl();
+        this.created = chatSession.getCreated();
+        this.maxConnections = chatSession.getMaxConnections();
+        this.profilesConnected.addAll(profileGuids);
+        touch();
+    }
+
+    /**
+     * @return A read-only view of the guids of the profiles connected to this session.
+     */
+    public Set<UUID> getProfilesConnected() {
+        return Collections.unmodifiableSet(profilesConnected);
+    }
+
+    /**
+     * @return The number of profiles connected to this session.
+     */
+    public int connectedCount() {
+        return profilesConnected.size();
+    }
+
+    /**
+     * Creates a detached ChatSession holding the identifying columns, the connection count and the capacity
+     * of this session. The profile and message associations are not populated.
+     *
+     * @return {@code ChatSession.class}
+     */
+    public ChatSession toChatSession() {
+        return ChatSession.builder()
+                .id(this.id)
+                .guid(this.guid)
+                .key(this.key)
+                .connectUrl(this.connectUrl)
+                .created(this.created)
+                .connectedCount(connectedCount())
+                .maxConnections(this.maxConnections)
+                .build();
+    }
+
+    void addProfile(UUID profileGuid) {
+        profilesConnected.add(profileGuid);
+    }
+
+    void removeProfile(UUID profileGuid) {
+        profilesConnected.remove(profileGuid);
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+}
@@ -0,0 +1,171 @@
+package se.nackademin.stringify.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.configuration.SessionRegistryProperties;
+import se.nackademin.stringify.domain.ChatSession;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps live chat sessions in memory, indexed by guid and by key, so that frequent lookups can be
+ * resolved without a database round trip.
+ * <br />
+ * The database stays the source of truth: sessions are registered when they are first loaded or created,
+ * kept current by the connect and disconnect handlers and evicted when deleted or idle.
+ * <br />
+ * In cluster mode no sessions are kept, since a session can be joined, left and deleted through any
+ * instance, and every lookup falls back to the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ActiveSessionRegistry {
+
+    private final SessionRegistryProperties properties;
+    private final ClusterProperties clusterProperties;
+    private final Map<UUID, ActiveSession> sessionsByGuid = new ConcurrentHashMap<>();
+    private final Map<String, ActiveSession> sessionsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Finds a registered session by its guid.
+     *
+     * @param guid The guid of the chat session.
+     * @return The registered session, or an empty {@code Optional} if it is not registered.
+     */
+    public Optional<ActiveSession> findByGuid(UUID guid) {
+        ActiveSession session = sessionsByGuid.get(guid);
+        if (session == null)
+            return Optional.empty();
+
+        session.touch();
+        return Optional.of(session);
+    }
+
+    /**
+     * Checks if a session is registered without counting the check as a use of the session, so that
+     * background tasks can look at it without keeping it from being evicted as idle.
+     *
+     * @param guid The guid of the chat session.
+     * @return {@code true} if the session is registered; {@code false} otherwise
+     */
+    public boolean isRegistered(UUID guid) {
+        return sessionsByGuid.containsKey(guid);
+    }
+
+    /**
+     * Finds a registered session by its key.
+     *
+     * @param key The key of the chat session.
+     * @return The registered session, or an empty {@code Optional} if it is not registered.
+     */
+    public Optional<ActiveSession> findByKey(String key) {
+        ActiveSession session = sessionsByKey.get(key);
+        if (session == null)
+            return Optional.empty();
+
+        session.touch();
+        return Optional.of(session);
+    }
+
+    /**
+     * Registers a chat session loaded from or saved to the database. If the session already is registered
+     * the registered instance is kept.
+     *
+     * @param chatSession  The chat session, its profiles are not read.
+     * @param profileGuids The guids of the profiles connected to the chat session.
+     * @return The registered session.
+     */
+    public ActiveSession register(ChatSession chatSession, Collection<UUID> profileGuids) {
+        ActiveSession candidate = new ActiveSession(chatSession, profileGuids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+
+        if (clusterProperties.isEnabled())
+            return candidate;
+
+        ActiveSession registered = sessionsByGuid.putIfAbsent(candidate.getGuid(), candidate);
+        if (registered == null) {
+            registered = candidate;
+            if (registered.getKey() != null)
+                sessionsByKey.put(registered.getKey(), registered);
+        }
+
+        registered.touch();
+        return registered;
+    }
+
+    /**
+     * Adds a profile to a registered session. Does nothing if the session is not registered.
+     */
+    public void profileConnected(UUID chatSessionGuid, UUID profileGuid) {
+        ActiveSession session = sessionsByGuid.get(chatSessionGuid);
+        if (session != null && profileGuid != null) {
+            session.addProfile(profileGuid);
+            session.touch();
+        }
+    }
+
+    /**
+     * Removes a profile from a registered session. Does nothing if the session is not registered.
+     */
+    public void profileDisconnected(UUID chatSessionGuid, UUID profileGuid) {
+        ActiveSession session = sessionsByGuid.get(chatSessionGuid);
+        if (session != null && profileGuid != null) {
+            session.removeProfile(profileGuid);
+            session.touch();
+        }
+    }
+
+    /**
+     * Removes a session from the registry, e.g. when it has been deleted.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     */
+    public void evict(UUID chatSessionGuid) {
+        ActiveSession session = sessionsByGuid.remove(chatSessionGuid);
+        if (session != null && session.getKey() != null)
+            sessionsByKey.remove(session.getKey(), session);
+    }
+
+    /**
+     * @return The number of registered sessions.
+     */
+    public int size() {
+        return sessionsByGuid.size();
+    }
+
+    /**
+     * @return The number of profiles connected to all registered sessions.
+     */
+    public int connectedProfiles() {
+        return sessionsByGuid.values().stream()
+                .mapToInt(ActiveSession::connectedCount)
+                .sum();
+    }
+
+    /**
+     * Evicts sessions that have not been used within the configured idle timeout.
+     */
+    @Scheduled(fixedDelayString = "#{@sessionRegistryProperties.evictionInterval.toMillis()}")
+    public void evictIdle() {
+        long idleBefore = System.nanoTime() - properties.getIdleTimeout().toNanos();
+
+        sessionsByGuid.values().stream()
+                .filter(session -> session.getLastAccess() - idleBefore < 0)
+                .map(ActiveSession::getGuid)
+                .collect(Collectors.toList())
+                .forEach(this::evict);
+
+        log.debug("{} active sessions registered", sessionsByGuid.size());
+    }
+}
@@ -0,0 +1,100 @@
+package se.nackademin.stringify.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.AdmissionProperties;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.domain.ChatSession;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enforces the maximum number of profiles per chat session.
+ * <br />
+ * Finding a meeting only checks for a free slot, so that looking a meeting up, however often, never holds
+ * one. The slot is taken when the profile connects, from a single atomic counter, so concurrent joins cannot
+ * overshoot the capacity. The slots of a session are seeded with its connection count the first time the
+ * session is used.
+ * <br />
+ * In cluster mode no slots are kept, since profiles connect through every instance. The connection count
+ * stored with the chat session is checked instead, and is only incremented below the capacity.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionControl {
+
+    private final AdmissionProperties properties;
+    private final ClusterProperties clusterProperties;
+    private final Map<UUID, SessionSlots> slotsByGuid = new ConcurrentHashMap<>();
+
+    /**
+     * Checks for a free slot without taking it, e.g. for a client that found the meeting.
+     *
+     * @param chatSession The chat session with its connection count and optional capacity.
+     * @return {@code true} if a slot is free; {@code false} if the chat session is full.
+     */
+    public boolean hasFreeSlot(ChatSession chatSession) {
+        if (clusterProperties.isEnabled())
+            return chatSession.getConnectedCount() < capacityOf(chatSession);
+
+        return slots(chatSession).hasFree(System.nanoTime());
+    }
+
+    /**
+     * Admits a connecting profile by taking a free slot.
+     *
+     * @param chatSession The chat session with its connection count and optional capacity.
+     * @return {@code true} if the profile may connect; {@code false} if the chat session is full.
+     */
+    public boolean admit(ChatSession chatSession) {
+        if (clusterProperties.isEnabled())
+            return true;
+
+        return slots(chatSession).admit(System.nanoTime());
+    }
+
+    /**
+     * Gives back the slot of a disconnected profile, or of a profile whose connection was rolled back.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     */
+    public void release(UUID chatSessionGuid) {
+        SessionSlots slots = slotsByGuid.get(chatSessionGuid);
+        if (slots != null)
+            slots.release();
+    }
+
+    /**
+     * Forgets the slots of a chat session, e.g. when it has been deleted.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     */
+    public void evict(UUID chatSessionGuid) {
+        slotsByGuid.remove(chatSessionGuid);
+    }
+
+    /**
+     * @return The capacity of a chat session.
+     */
+    public int capacityOf(ChatSession chatSession) {
+        Integer maxConnections = chatSession.getMaxConnections();
+        return maxConnections == null || maxConnections <= 0 ? properties.getDefaultCapacity() : maxConnections;
+    }
+
+    /**
+     * Forgets the slots of chat sessions that have not been used within the configured idle timeout.
+     */
+    @Scheduled(fixedDelayString = "#{@admissionProperties.evictionInterval.toMillis()}")
+    public void evictIdle() {
+        long idleBefore = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        slotsByGuid.values().removeIf(slots -> slots.getLastAccess() - idleBefore < 0);
+    }
+
+    private SessionSlots slots(ChatSession chatSession) {
+        return slotsByGuid.computeIfAbsent(chatSession.getGuid(),
+                guid -> new SessionSlots(capacityOf(chatSession), chatSession.getConnectedCount()));
+    }
+}
@@ -0,0 +1,81 @@
+package se.nackademin.stringify.cache;
+
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A fixed-size ring buffer holding the most recent messages of a single chat session.
+ */
+class RecentMessageBuffer {
+
+    private final MessageDto[] ring;
+    private int head;
+    private int size;
+    /**
+     * {@code true} once older messages exist that are no longer, or never were, in the buffer.
+     */
+    private boolean truncated;
+    private volatile long lastAccess = System.nanoTime();
+
+    RecentMessageBuffer(int capacity) {
+        this.ring = new MessageDto[capacity];
+    }
+
+    /**
+     * Fills the buffer with the newest messages of the session.
+     *
+     * @param ascending The newest messages of the session, oldest first.
+     * @param complete  {@code true} if the messages are the whole history of the session.
+     */
+    synchronized void seed(List<MessageDto> ascending, boolean complete) {
+        for (MessageDto message : ascending) {
+            append(message);
+        }
+        truncated = truncated || !complete;
+    }
+
+    synchronized void append(MessageDto message) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(ring[i].getGuid(), message.getGuid()) && message.getGuid() != null)
+                return;
+        }
+
+        ring[head] = message;
+        head = (head + 1) % ring.length;
+        if (size < ring.length)
+            size++;
+        else
+            truncated = true;
+        lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Reads a page of messages counted from the newest message.
+     *
+     * @return The page sorted by ascending dates, or an empty {@code Optional} if the buffer cannot
+     * tell what the page contains.
+     */
+    synchronized Optional<List<MessageDto>> page(int page, int pageSize) {
+        lastAccess = System.nanoTime();
+        long from = (long) page * pageSize;
+        long to = from + pageSize;
+
+        if (page < 0 || (to > size && truncated))
+            return Optional.empty();
+
+        int last = (int) Math.min(to, size);
+        List<MessageDto> messages = new ArrayList<>(Math.max(0, last - (int) Math.min(from, size)));
+        for (int newest = last - 1; newest >= from; newest--) {
+            messages.add(ring[Math.floorMod(head - 1 - newest, ring.length)]);
+        }
+        return Optional.of(messages);
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
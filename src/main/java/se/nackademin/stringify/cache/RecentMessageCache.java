@@ -0,0 +1,176 @@
+package se.nackademin.stringify.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.configuration.RecentMessageCacheProperties;
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the most recent messages of every active chat session in a fixed-size ring buffer, so that the
+ * first history pages requested by joining clients can be served without a database query.
+ * <br />
+ * A buffer is created empty for new meetings, or seeded from the database the first time the history of
+ * an existing meeting is requested. Once created it is filled with every message and connection notice.
+ * <br />
+ * In cluster mode no buffers are kept, since messages are sent through every instance, and every page is
+ * read from the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecentMessageCache {
+
+    private final RecentMessageCacheProperties properties;
+    private final ClusterProperties clusterProperties;
+    private final Map<UUID, RecentMessageBuffer> buffers = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty buffer for a chat session that has no history yet.
+     *
+     * @param chatSessionGuid The guid of the new chat session.
+     */
+    public void open(UUID chatSessionGuid) {
+        if (clusterProperties.isEnabled())
+            return;
+
+        buffers.putIfAbsent(chatSessionGuid, new RecentMessageBuffer(properties.getCapacity()));
+    }
+
+    /**
+     * Adds a message to the buffer of its chat session. Does nothing if the session has no buffer.
+     * Within a transaction the message is only added once the transaction has committed, so that a rolled
+     * back message is never served.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     * @param message         The persisted or buffered message.
+     */
+    public void append(UUID chatSessionGuid, MessageDto message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            appendCommitted(chatSessionGuid, message);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                appendCommitted(chatSessionGuid, message);
+            }
+        });
+    }
+
+    /**
+     * Reads a page of the recent messages of a chat session, counted from the newest message.
+     * If the session has no buffer yet it is seeded with the newest messages from the loader.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     * @param page            The page number, 0 being the newest page.
+     * @param pageSize        The number of messages per page.
+     * @param newestLoader    Loads the newest {@code getCapacity()} messages of the session, oldest first.
+     * @return The page sorted by ascending dates, or an empty {@code Optional} if the page is older than
+     * the buffered messages or the cache is bypassed in cluster mode.
+     */
+    public Optional<List<MessageDto>> page(UUID chatSessionGuid, int page, int pageSize,
+                                           Supplier<List<MessageDto>> newestLoader) {
+        if (clusterProperties.isEnabled())
+            return Optional.empty();
+
+        RecentMessageBuffer buffer = buffers.get(chatSessionGuid);
+        if (buffer == null) {
+            misses.increment();
+            return seed(chatSessionGuid, newestLoader).page(page, pageSize);
+        }
+
+        Optional<List<MessageDto>> messages = buffer.page(page, pageSize);
+        if (messages.isPresent())
+            hits.increment();
+        else
+            misses.increment();
+
+        return messages;
+    }
+
+    /**
+     * Removes the buffer of a chat session, e.g. when the session has been deleted.
+     *
+     * @param chatSessionGuid The guid of the chat session.
+     */
+    public void evict(UUID chatSessionGuid) {
+        buffers.remove(chatSessionGuid);
+    }
+
+    /**
+     * @return The number of messages kept per chat session.
+     */
+    public int getCapacity() {
+        return properties.getCapacity();
+    }
+
+    /**
+     * @return The number of chat sessions with a buffer.
+     */
+    public int size() {
+        return buffers.size();
+    }
+
+    /**
+     * @return The number of pages served from a buffer.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of pages that could not be served from a buffer.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Evicts the buffers that have not been used within the configured idle timeout.
+     */
+    @Scheduled(fixedDelayString = "#{@recentMessageCacheProperties.evictionInterval.toMillis()}")
+    public void evictIdle() {
+        long idleBefore = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        buffers.entrySet().removeIf(entry -> entry.getValue().getLastAccess() - idleBefore < 0);
+    }
+
+    private void appendCommitted(UUID chatSessionGuid, MessageDto message) {
+        RecentMessageBuffer buffer = buffers.get(chatSessionGuid);
+        if (buffer != null)
+            buffer.append(message);
+    }
+
+    private RecentMessageBuffer seed(UUID chatSessionGuid, Supplier<List<MessageDto>> newestLoader) {
+        RecentMessageBuffer candidate = new RecentMessageBuffer(properties.getCapacity());
+
+        synchronized (candidate) {
+            RecentMessageBuffer existing = buffers.putIfAbsent(chatSessionGuid, candidate);
+            if (existing != null)
+                return existing;
+
+            try {
+                List<MessageDto> newest = newestLoader.get();
+                candidate.seed(newest, newest.size() < properties.getCapacity());
+            } catch (RuntimeException ex) {
+                buffers.remove(chatSessionGuid, candidate);
+                throw ex;
+            }
+        }
+
+        return candidate;
+    }
+}
@@ -0,0 +1,70 @@
+package se.nackademin.stringify.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The connection slots of a single chat session, each held by a connected profile.
+ * <br />
+ * Slots are taken with a compare-and-set on a single counter, so the capacity holds under concurrent joins
+ * without locking.
+ */
+class SessionSlots {
+
+    private final int capacity;
+    private final AtomicInteger used;
+    private volatile long lastAccess;
+
+    SessionSlots(int capacity, int connected) {
+        this.capacity = capacity;
+        this.used = new AtomicInteger(Math.min(connected, capacity));
+        this.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * @return {@code true} if a slot is free at the moment; {@code false} if the session is full.
+     */
+    boolean hasFree(long now) {
+        lastAccess = now;
+        return used.get() < capacity;
+    }
+
+    /**
+     * Takes a free slot for a connecting profile.
+     *
+     * @return {@code true} if the profile may connect; {@code false} if the session is full.
+     */
+    boolean admit(long now) {
+        lastAccess = now;
+        int current;
+        do {
+            current = used.get();
+            if (current >= capacity)
+                return false;
+        } while (!used.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Gives back the slot of a disconnected profile.
+     */
+    void release() {
+        int current;
+        do {
+            current = used.get();
+            if (current == 0)
+                return;
+        } while (!used.compareAndSet(current, current - 1));
+    }
+
+    int used() {
+        return used.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
@@ -0,0 +1,63 @@
+package se.nackademin.stringify.cache;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.domain.Profile;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the WebSocket sessions of this instance to the profile and chat session they connected with, so
+ * that a profile can be removed when its connection is dropped without a disconnect message.
+ */
+@Component
+public class WebSocketSessionIndex {
+
+    private final Map<String, Binding> bindingsBySessionId = new ConcurrentHashMap<>();
+
+    /**
+     * Binds a WebSocket session to a connected profile. A session binds to the last profile it connected.
+     *
+     * @param sessionId       The id of the WebSocket session.
+     * @param chatSessionGuid The guid of the chat session.
+     * @param profile         The connected profile.
+     */
+    public void bind(String sessionId, UUID chatSessionGuid, Profile profile) {
+        bindingsBySessionId.put(sessionId, new Binding(chatSessionGuid, profile));
+    }
+
+    /**
+     * Removes the binding of a WebSocket session.
+     *
+     * @param sessionId The id of the WebSocket session.
+     * @return The profile and chat session the session was bound to, if any.
+     */
+    public Optional<Binding> unbind(String sessionId) {
+        return Optional.ofNullable(bindingsBySessionId.remove(sessionId));
+    }
+
+    /**
+     * @return The number of bound WebSocket sessions.
+     */
+    public int size() {
+        return bindingsBySessionId.size();
+    }
+
+    /**
+     * A profile connected to a chat session.
+     */
+    @Getter
+    public static class Binding {
+
+        private final UUID chatSessionGuid;
+        private final Profile profile;
+
+        public Binding(UUID chatSessionGuid, Profile profile) {
+            this.chatSessionGuid = chatSessionGuid;
+            this.profile = profile;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package se.nackademin.stringify.cluster;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import se.nackademin.stringify.configuration.ClusterProperties;
+
+/**
+ * Publishes the broadcasts sent to the local broker to the other instances of the cluster.
+ * <br />
+ * The message is delivered to the local subscribers as usual. Messages relayed from another instance carry
+ * the {@code ORIGIN_HEADER} and are not published again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterBroadcastInterceptor implements ChannelInterceptor {
+
+    static final String ORIGIN_HEADER = "stringify-origin";
+    static final String DESTINATION_HEADER = "stringify-destination";
+
+    private final ClusterProperties properties;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (message.getHeaders().containsKey(ORIGIN_HEADER) || !(message.getPayload() instanceof byte[]))
+            return message;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || !isRelayed(destination))
+            return message;
+
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+        messageProperties.setHeader(ORIGIN_HEADER, properties.getNodeId());
+        messageProperties.setHeader(DESTINATION_HEADER, destination);
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null)
+            messageProperties.setContentType(contentType.toString());
+
+        try {
+            rabbitTemplate.send(properties.getExchange(), "",
+                    new org.springframework.amqp.core.Message((byte[]) message.getPayload(), messageProperties));
+        } catch (AmqpException ex) {
+            log.warn("Could not relay broadcast to {} to the cluster: {}", destination, ex.getMessage());
+        }
+
+        return message;
+    }
+
+    private boolean isRelayed(String destination) {
+        return destination != null && properties.getDestinationPrefixes().stream().anyMatch(destination::startsWith);
+    }
+}
@@ -0,0 +1,51 @@
+package se.nackademin.stringify.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import se.nackademin.stringify.configuration.ClusterProperties;
+
+/**
+ * Delivers the broadcasts published by the other instances of the cluster to the local broker, which
+ * sends them to the clients subscribed on this instance.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterBroadcastListener {
+
+    private final ClusterProperties properties;
+    private final MessageChannel brokerChannel;
+
+    public ClusterBroadcastListener(ClusterProperties properties,
+                                    @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.properties = properties;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @RabbitListener(queues = "#{clusterQueue.name}")
+    public void onBroadcast(org.springframework.amqp.core.Message broadcast) {
+        Object origin = broadcast.getMessageProperties().getHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER);
+        Object destination = broadcast.getMessageProperties().getHeader(ClusterBroadcastInterceptor.DESTINATION_HEADER);
+        if (origin == null || destination == null || properties.getNodeId().equals(origin.toString()))
+            return;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination.toString());
+        accessor.setHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER, origin.toString());
+        String contentType = broadcast.getMessageProperties().getContentType();
+        if (contentType != null)
+            accessor.setContentType(MimeTypeUtils.parseMimeType(contentType));
+        accessor.setLeaveMutable(true);
+
+        if (!brokerChannel.send(MessageBuilder.createMessage(broadcast.getBody(), accessor.getMessageHeaders())))
+            log.warn("Could not deliver broadcast to {} from {}", destination, origin);
+    }
+}
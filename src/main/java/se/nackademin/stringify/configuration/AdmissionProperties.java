@@ -0,0 +1,31 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the admission of profiles to chat sessions.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.sessions.admission")
+public class AdmissionProperties {
+
+    /**
+     * Maximum number of profiles in a chat session that has no capacity of its own.
+     */
+    private int defaultCapacity = 5;
+    /**
+     * Time after which the slots of an unused chat session are forgotten and seeded again on next use.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    /**
+     * Interval of the eviction of idle slots.
+     */
+    private Duration evictionInterval = Duration.ofMinutes(1);
+}
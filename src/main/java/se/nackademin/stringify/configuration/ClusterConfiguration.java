@@ -0,0 +1,46 @@
+package se.nackademin.stringify.configuration;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the broker objects of the clustered mode. Every instance binds its own
+ * auto-deleted queue to the shared fanout exchange.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterConfiguration {
+
+    /***
+     * The exchange every instance publishes its broadcasts to.
+     * @return {@code FanoutExchange.class}
+     */
+    @Bean
+    public FanoutExchange clusterExchange(ClusterProperties properties) {
+        return new FanoutExchange(properties.getExchange(), true, false);
+    }
+
+    /***
+     * The queue receiving the broadcasts for this instance.
+     * @return {@code Queue.class}
+     */
+    @Bean
+    public Queue clusterQueue() {
+        return new AnonymousQueue();
+    }
+
+    /***
+     * Binds the queue of this instance to the exchange.
+     * @return {@code Binding.class}
+     */
+    @Bean
+    public Binding clusterBinding(Queue clusterQueue, FanoutExchange clusterExchange) {
+        return BindingBuilder.bind(clusterQueue).to(clusterExchange);
+    }
+}
@@ -0,0 +1,39 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Configuration properties for running several instances of the application behind a load balancer.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.cluster")
+public class ClusterProperties {
+
+    /**
+     * Relays the broadcasts of every instance to the clients connected to the other instances through a
+     * fanout exchange. The broker is configured with the {@code spring.rabbitmq.*} properties.
+     * The per instance session registry, recent message cache, admission slots and key claims are
+     * bypassed, and the database is used instead.
+     */
+    private boolean enabled = false;
+    /**
+     * Name of the fanout exchange shared by all instances.
+     */
+    private String exchange = "stringify.broadcast";
+    /**
+     * Identifies this instance, so that it ignores its own broadcasts.
+     */
+    private String nodeId = UUID.randomUUID().toString();
+    /**
+     * Destination prefixes relayed to the other instances.
+     */
+    private List<String> destinationPrefixes = List.of("/queue/meeting/", "/queue/connect/", "/queue/disconnect/");
+}
@@ -12,15 +12,48 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class DataSourceConfiguration {
 
+    static final String POOL_NAME = "stringify";
+
     /**
-     * Builds HikariDataSource with configuration
+     * Builds HikariDataSource with configuration. The pool is named so that its {@code hikaricp.*} metrics
+     * can be told apart, and sized by {@link #maximumPoolSize} if pool sizing is enabled and no size is
+     * configured.
      * @return {@Code HikariDataSource.class}
      */
     @Bean
     @ConfigurationProperties("app.datasource")
-    public HikariDataSource hikariDataSource() {
-        return DataSourceBuilder.create().
+    public HikariDataSource hikariDataSource(DataSourcePoolProperties poolProperties,
+                                             WebSocketProperties webSocketProperties) {
+        HikariDataSource dataSource = DataSourceBuilder.create().
                 type(HikariDataSource.class)
                 .build();
+        dataSource.setPoolName(POOL_NAME);
+        if (poolProperties.isEnabled())
+            dataSource.setMaximumPoolSize(maximumPoolSize(poolProperties,
+                    webSocketProperties.getInbound().getCorePoolSize()));
+        return dataSource;
+    }
+
+    /**
+     * Sizes the pool by {@code cores * 2 + effective spindles}, the number of connections a database can
+     * keep busy, but no larger than the expected concurrency, since more connections would stay idle.
+     * The connections held by background tasks and transcript exports are added on top, so that they do not
+     * take connections from requests.
+     *
+     * @param poolProperties The pool sizing properties
+     * @param inboundThreads Threads of the inbound WebSocket channel, each of which may hold a connection
+     * @return the maximum pool size
+     */
+    static int maximumPoolSize(DataSourcePoolProperties poolProperties, int inboundThreads) {
+        int cores = poolProperties.getDatabaseCores() > 0
+                ? poolProperties.getDatabaseCores()
+                : Runtime.getRuntime().availableProcessors();
+        int concurrency = poolProperties.getExpectedConcurrency() > 0
+                ? poolProperties.getExpectedConcurrency()
+                : inboundThreads;
+
+        int busyConnections = cores * 2 + poolProperties.getEffectiveSpindleCount();
+        int headroom = poolProperties.getBackgroundConnections() + poolProperties.getTranscriptStreams();
+        return Math.max(poolProperties.getMinimumSize(), Math.min(busyConnections, concurrency) + headroom);
     }
 }
@@ -0,0 +1,48 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for sizing the database connection pool. The size is only computed when enabled,
+ * as in the prod profile, and an explicit {@code app.datasource.maximum-pool-size} takes precedence over it.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.datasource-pool")
+public class DataSourcePoolProperties {
+
+    /**
+     * Computes the pool size from the properties below. Otherwise Hikari's default size is kept.
+     */
+    private boolean enabled = false;
+    /**
+     * Cores of the database server. Zero assumes the database has as many cores as this host.
+     */
+    private int databaseCores = 0;
+    /**
+     * Disks or other resources the database waits on, added to twice the core count.
+     */
+    private int effectiveSpindleCount = 1;
+    /**
+     * Requests and STOMP messages expected to use a connection at the same time. Zero uses the core
+     * pool size of the inbound WebSocket channel.
+     */
+    private int expectedConcurrency = 0;
+    /**
+     * Connections reserved for the background tasks that hold one outside of requests: the retention
+     * reaper, the notice outbox relay, the partition maintainer and the write-behind flush.
+     */
+    private int backgroundConnections = 4;
+    /**
+     * Transcript exports expected to stream at the same time, each holding a connection until it is done.
+     */
+    private int transcriptStreams = 2;
+    /**
+     * Lower bound of the computed pool size, Hikari's default size.
+     */
+    private int minimumSize = 10;
+}
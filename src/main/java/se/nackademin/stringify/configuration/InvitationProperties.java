@@ -0,0 +1,63 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the asynchronous dispatch of invitation emails.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.invitations")
+public class InvitationProperties {
+
+    /**
+     * Maximum amount of invitations waiting to be sent.
+     */
+    private int capacity = 1_000;
+    /**
+     * Maximum amount of invitations sent in a single mail, SendGrid allows up to 1000 personalizations.
+     */
+    private int batchSize = 100;
+    /**
+     * Maximum time an invitation waits for other invitations to be sent in the same mail.
+     */
+    private Duration lingerTime = Duration.ofMillis(200);
+    /**
+     * Number of threads sending mails and retries.
+     */
+    private int senderThreads = 2;
+    /**
+     * Maximum number of attempts to send a mail.
+     */
+    private int maxAttempts = 5;
+    /**
+     * Delay before the first retry, doubled for every following retry.
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    /**
+     * Maximum delay between two retries.
+     */
+    private Duration maxBackoff = Duration.ofMinutes(1);
+    /**
+     * Time given to send the queued invitations when the application shuts down.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    /**
+     * Sender address of the invitations.
+     */
+    private String from = "noreply@stringify.com";
+    /**
+     * SendGrid dynamic template of the invitations.
+     */
+    private String templateId = "d-ee2942f110ba453b9f208384338c0824";
+    /**
+     * SendGrid API key.
+     */
+    private String apiKey;
+}
@@ -0,0 +1,37 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the daily partitions of the message table.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.messages.partitions")
+public class MessagePartitionProperties {
+
+    /**
+     * If {@code false} partitions are neither created nor dropped, e.g. for a database whose message table is
+     * not partitioned.
+     */
+    private boolean enabled = true;
+    /**
+     * Amount of days ahead of today that partitions are created for.
+     */
+    private int daysAhead = 7;
+    /**
+     * Interval at which missing partitions are created and expired partitions are dropped.
+     */
+    private Duration interval = Duration.ofHours(1);
+    /**
+     * Time to wait for the lock on the message table before creating or dropping a partition is given up
+     * until the next run, so that a long read does not queue every other statement behind it.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(5);
+}
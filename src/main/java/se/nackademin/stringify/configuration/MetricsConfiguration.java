@@ -0,0 +1,193 @@
+package se.nackademin.stringify.configuration;
+
+import io.micrometer.core.aop.CountedAspect;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.cache.WebSocketSessionIndex;
+import se.nackademin.stringify.controller.websocket.InboundRateLimitInterceptor;
+import se.nackademin.stringify.service.DisconnectCleanup;
+import se.nackademin.stringify.service.InvitationDispatcher;
+import se.nackademin.stringify.service.MessageWriteBehindQueue;
+import se.nackademin.stringify.service.RetentionReaper;
+
+/**
+ * Configuration class for the application metrics exported through the actuator Prometheus endpoint.
+ * <br />
+ * Service methods are timed with {@code @Timed}. The connection pool is instrumented by Spring Boot as
+ * {@code hikaricp.*} since the data source is a {@code HikariDataSource}.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /***
+     * Enables {@code @Timed} on Spring beans.
+     * @return {@code TimedAspect.class}
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    /***
+     * Enables {@code @Counted} on Spring beans.
+     * @return {@code CountedAspect.class}
+     */
+    @Bean
+    public CountedAspect countedAspect(MeterRegistry registry) {
+        return new CountedAspect(registry);
+    }
+
+    /***
+     * Gauges of the live chat sessions and their in-memory caches.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder chatSessionMetrics(ActiveSessionRegistry activeSessionRegistry,
+                                          RecentMessageCache recentMessageCache,
+                                          MessageWriteBehindQueue messageWriteBehindQueue) {
+        return registry -> {
+            Gauge.builder("stringify.sessions.active", activeSessionRegistry, ActiveSessionRegistry::size)
+                    .description("Chat sessions held in the active session registry")
+                    .register(registry);
+            Gauge.builder("stringify.sessions.profiles.connected", activeSessionRegistry,
+                    ActiveSessionRegistry::connectedProfiles)
+                    .description("Profiles connected to the registered chat sessions")
+                    .register(registry);
+            Gauge.builder("stringify.messages.write.behind.size", messageWriteBehindQueue, MessageWriteBehindQueue::size)
+                    .description("Messages waiting to be written to the database")
+                    .register(registry);
+            FunctionCounter.builder("stringify.messages.recent.cache", recentMessageCache, RecentMessageCache::getHits)
+                    .description("History pages looked up in the recent message cache")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("stringify.messages.recent.cache", recentMessageCache, RecentMessageCache::getMisses)
+                    .description("History pages looked up in the recent message cache")
+                    .tag("result", "miss")
+                    .register(registry);
+        };
+    }
+
+    /***
+     * Gauges of the WebSocket sessions bound to profiles and the dropped profiles waiting to be removed.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder sessionCleanupMetrics(WebSocketSessionIndex webSocketSessionIndex,
+                                             DisconnectCleanup disconnectCleanup) {
+        return registry -> {
+            Gauge.builder("stringify.sessions.websocket.bound", webSocketSessionIndex, WebSocketSessionIndex::size)
+                    .description("WebSocket sessions bound to a connected profile")
+                    .register(registry);
+            Gauge.builder("stringify.sessions.profiles.dropped", disconnectCleanup, DisconnectCleanup::size)
+                    .description("Profiles whose connection was dropped, waiting to be removed")
+                    .register(registry);
+        };
+    }
+
+    /***
+     * Rows deleted by the retention reaper and the chunks they were deleted in.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder retentionMetrics(RetentionReaper retentionReaper) {
+        return registry -> {
+            FunctionCounter.builder("stringify.retention.deleted", retentionReaper, RetentionReaper::getDeletedSessions)
+                    .description("Rows of expired chat sessions deleted by the retention reaper")
+                    .tag("table", "chatsession")
+                    .register(registry);
+            FunctionCounter.builder("stringify.retention.deleted", retentionReaper, RetentionReaper::getDeletedMessages)
+                    .description("Rows of expired chat sessions deleted by the retention reaper")
+                    .tag("table", "message")
+                    .register(registry);
+            FunctionCounter.builder("stringify.retention.chunks", retentionReaper, RetentionReaper::getChunks)
+                    .description("Chunks of messages deleted by the retention reaper, each in its own transaction")
+                    .register(registry);
+        };
+    }
+
+    /***
+     * Queue size and outcomes of the invitation emails.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder invitationMetrics(InvitationDispatcher invitationDispatcher) {
+        return registry -> {
+            Gauge.builder("stringify.invitations.queued", invitationDispatcher, InvitationDispatcher::size)
+                    .description("Invitations waiting to be sent")
+                    .register(registry);
+            FunctionCounter.builder("stringify.invitations", invitationDispatcher, InvitationDispatcher::getSent)
+                    .description("Invitations by outcome of their delivery attempts")
+                    .tag("result", "sent")
+                    .register(registry);
+            FunctionCounter.builder("stringify.invitations", invitationDispatcher, InvitationDispatcher::getRetried)
+                    .description("Invitations by outcome of their delivery attempts")
+                    .tag("result", "retried")
+                    .register(registry);
+            FunctionCounter.builder("stringify.invitations", invitationDispatcher, InvitationDispatcher::getFailed)
+                    .description("Invitations by outcome of their delivery attempts")
+                    .tag("result", "failed")
+                    .register(registry);
+        };
+    }
+
+    /***
+     * Queue depth and active threads of the STOMP channel executors.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder stompChannelMetrics(
+            @Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outboundExecutor,
+            @Qualifier("brokerChannelExecutor") ThreadPoolTaskExecutor brokerExecutor) {
+        return registry -> {
+            bindChannelExecutor(registry, "inbound", inboundExecutor);
+            bindChannelExecutor(registry, "outbound", outboundExecutor);
+            bindChannelExecutor(registry, "broker", brokerExecutor);
+        };
+    }
+
+    /***
+     * Frames dropped over the inbound rate limits and the buckets being tracked.
+     * @return {@code MeterBinder.class}
+     */
+    @Bean
+    public MeterBinder inboundRateLimitMetrics(InboundRateLimitInterceptor inboundRateLimitInterceptor) {
+        return registry -> {
+            Gauge.builder("stringify.stomp.rate.limit.buckets", inboundRateLimitInterceptor,
+                    InboundRateLimitInterceptor::size)
+                    .description("Rate limit buckets of WebSocket sessions and meetings that have not refilled")
+                    .register(registry);
+            FunctionCounter.builder("stringify.stomp.rate.limit.rejected", inboundRateLimitInterceptor,
+                    InboundRateLimitInterceptor::getRejectedBySession)
+                    .description("Frames from clients dropped over a rate limit")
+                    .tag("limit", "session")
+                    .register(registry);
+            FunctionCounter.builder("stringify.stomp.rate.limit.rejected", inboundRateLimitInterceptor,
+                    InboundRateLimitInterceptor::getRejectedByMeeting)
+                    .description("Frames from clients dropped over a rate limit")
+                    .tag("limit", "meeting")
+                    .register(registry);
+        };
+    }
+
+    private static void bindChannelExecutor(MeterRegistry registry, String channel, ThreadPoolTaskExecutor executor) {
+        Gauge.builder("stringify.stomp.channel.queue.depth", executor,
+                e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Messages waiting for a thread of the STOMP channel executor")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("stringify.stomp.channel.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads of the STOMP channel executor that are handling messages")
+                .tag("channel", channel)
+                .register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the outbox of connection notices.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.notices.outbox")
+public class OutboxProperties {
+
+    /**
+     * Maximum amount of committed notices waiting to be published. Notices that do not fit are published
+     * by the next sweep instead.
+     */
+    private int capacity = 10_000;
+    /**
+     * Maximum amount of notices published and deleted together.
+     */
+    private int batchSize = 100;
+    /**
+     * Age after which a notice that is still in the outbox is published by the sweep, e.g. after a restart.
+     */
+    private Duration staleAfter = Duration.ofSeconds(10);
+    /**
+     * Interval at which the outbox is swept for stale notices.
+     */
+    private Duration sweepInterval = Duration.ofSeconds(5);
+    /**
+     * Time given to publish the committed notices when the application shuts down.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
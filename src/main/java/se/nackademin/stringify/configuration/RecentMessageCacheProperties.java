@@ -0,0 +1,31 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the per session cache of recent messages.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.messages.recent-cache")
+public class RecentMessageCacheProperties {
+
+    /**
+     * Number of recent messages kept per chat session.
+     */
+    private int capacity = 50;
+    /**
+     * Time after which the buffer of a chat session that has not been used is evicted.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    /**
+     * How often idle buffers are looked for.
+     */
+    private Duration evictionInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,48 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the deletion of expired chat sessions and their messages.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.sessions.retention")
+public class RetentionProperties {
+
+    /**
+     * If {@code false} expired chat sessions are kept.
+     */
+    private boolean enabled = true;
+    /**
+     * Age after which a chat session and its messages are deleted, counted from its creation. Partitions of
+     * the message table whose messages are all older are dropped as a whole.
+     */
+    private Duration maxAge = Duration.ofDays(1);
+    /**
+     * Interval between two runs of the reaper.
+     */
+    private Duration interval = Duration.ofMinutes(10);
+    /**
+     * Maximum amount of chat sessions deleted in a single run.
+     */
+    private int sessionsPerRun = 100;
+    /**
+     * Maximum amount of messages deleted by a single statement, each in its own transaction.
+     */
+    private int chunkSize = 1000;
+    /**
+     * Maximum amount of rows deleted per second, or 0 to delete the chunks without pausing.
+     */
+    private int maxRowsPerSecond = 5000;
+    /**
+     * Time the running chunk may take to finish when the application shuts down.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
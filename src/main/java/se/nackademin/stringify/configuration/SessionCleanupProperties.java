@@ -0,0 +1,31 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the removal of profiles whose WebSocket connection was dropped.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.sessions.cleanup")
+public class SessionCleanupProperties {
+
+    /**
+     * Time a profile may take to reconnect after its connection was dropped before it is removed.
+     */
+    private Duration gracePeriod = Duration.ofSeconds(30);
+    /**
+     * Interval at which the dropped profiles are removed.
+     */
+    private Duration interval = Duration.ofSeconds(5);
+    /**
+     * Maximum amount of profiles removed in a single run.
+     */
+    private int batchSize = 100;
+}
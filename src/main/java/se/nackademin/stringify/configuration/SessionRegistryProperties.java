@@ -0,0 +1,27 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory registry of active chat sessions.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.sessions.registry")
+public class SessionRegistryProperties {
+
+    /**
+     * Time after which a session that has not been used is evicted from the registry.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+    /**
+     * How often idle sessions are looked for.
+     */
+    private Duration evictionInterval = Duration.ofMinutes(1);
+}
@@ -1,26 +1,69 @@
 package se.nackademin.stringify.configuration;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.SimpleBrokerRegistration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import se.nackademin.stringify.cluster.ClusterBroadcastInterceptor;
+import se.nackademin.stringify.controller.websocket.InboundRateLimitInterceptor;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
 /***
  * Configuration class for websockets.
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketProperties properties;
+    private final ObjectProvider<ClusterBroadcastInterceptor> clusterBroadcastInterceptor;
+    private final InboundRateLimitInterceptor inboundRateLimitInterceptor;
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    /***
+     * The scheduler of the broker, used to send and check heartbeats. It is created by the broker
+     * configuration itself and can only be injected lazily.
+     */
+    @Autowired
+    public void setMessageBrokerTaskScheduler(
+            @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     /***
      * Enable a simple message broker.
      * Configure prefixes to filter destinations targeting the broker.
+     * Heartbeats are exchanged with the clients so that dead connections are closed.
+     * In clustered mode the broadcasts are also relayed to the other instances.
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/queue");
+        SimpleBrokerRegistration broker = config.enableSimpleBroker("/queue");
+        long heartbeat = properties.getHeartbeat().toMillis();
+        if (heartbeat > 0)
+            broker.setHeartbeatValue(new long[]{heartbeat, heartbeat})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+
         config.setApplicationDestinationPrefixes("/app");
+        config.setPreservePublishOrder(properties.isPreservePublishOrder());
+
+        if (properties.getBroker() != null)
+            config.configureBrokerChannel().taskExecutor(taskExecutor(properties.getBroker()));
+
+        clusterBroadcastInterceptor.ifAvailable(interceptor -> config.configureBrokerChannel().interceptors(interceptor));
     }
 
     /***
@@ -33,4 +76,52 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         "https://stringify-chat.netlify.app")
                 .withSockJS();
     }
-}
\ No newline at end of file
+
+    /***
+     * Configures the executor handling messages received from clients.
+     * Frames over the rate limits are dropped before they reach a controller.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(taskExecutor(properties.getInbound()));
+        registration.interceptors(inboundRateLimitInterceptor);
+    }
+
+    /***
+     * Configures the executor handling messages sent to clients.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(taskExecutor(properties.getOutbound()));
+    }
+
+    /***
+     * Configures the size and time limits of the WebSocket transport.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        WebSocketProperties.Transport transport = properties.getTransport();
+        registration.setMessageSizeLimit((int) transport.getMessageSizeLimit().toBytes())
+                .setSendTimeLimit((int) transport.getSendTimeLimit().toMillis())
+                .setSendBufferSizeLimit((int) transport.getSendBufferSizeLimit().toBytes())
+                .setTimeToFirstMessage((int) transport.getTimeToFirstMessage().toMillis());
+    }
+
+    /**
+     * Builds the executor of a message channel. Spring initializes the executor when it is registered as
+     * the channel's bean.
+     *
+     * @param channel The configured pool and queue sizes.
+     * @return {@code ThreadPoolTaskExecutor.class}
+     */
+    private static ThreadPoolTaskExecutor taskExecutor(WebSocketProperties.Channel channel) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(channel.getCorePoolSize());
+        executor.setMaxPoolSize(channel.getMaxPoolSize());
+        executor.setQueueCapacity(channel.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) channel.getKeepAlive().toSeconds());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
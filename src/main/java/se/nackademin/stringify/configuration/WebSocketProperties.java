@@ -0,0 +1,132 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the STOMP message channels and the WebSocket transport.
+ * <br />
+ * The defaults match the defaults of Spring's WebSocket message broker configuration.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.websocket")
+public class WebSocketProperties {
+
+    /**
+     * Executor of the channel carrying messages received from clients.
+     */
+    private Channel inbound = new Channel();
+    /**
+     * Executor of the channel carrying messages sent to clients.
+     */
+    private Channel outbound = new Channel();
+    /**
+     * Executor of the channel carrying messages from the application to the broker. When not configured
+     * the messages are handed to the broker on the sending thread.
+     */
+    private Channel broker;
+    /**
+     * Publishes the messages to each client in the order they were sent to the broker, at the cost of
+     * serializing the delivery per client session.
+     */
+    private boolean preservePublishOrder = false;
+    /**
+     * Interval at which the broker sends heartbeats to clients and expects them from clients that support
+     * them. A client that stays silent for three intervals is disconnected. Zero disables heartbeats.
+     */
+    private Duration heartbeat = Duration.ofSeconds(10);
+    private Transport transport = new Transport();
+    private RateLimit rateLimit = new RateLimit();
+
+    @Getter
+    @Setter
+    public static class Channel {
+
+        /**
+         * Number of threads kept alive in the pool.
+         */
+        private int corePoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        /**
+         * Maximum number of threads, only reached when the queue is full.
+         */
+        private int maxPoolSize = Integer.MAX_VALUE;
+        /**
+         * Maximum number of messages waiting for a thread. When both the queue and the pool are full the
+         * message is handled by the sending thread, which slows the sender down.
+         */
+        private int queueCapacity = Integer.MAX_VALUE;
+        /**
+         * Time an idle thread above the core pool size is kept alive.
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+
+    @Getter
+    @Setter
+    public static class Transport {
+
+        /**
+         * Maximum size of an inbound message.
+         */
+        private DataSize messageSizeLimit = DataSize.ofKilobytes(64);
+        /**
+         * Maximum time to send a message to a client before the session is closed.
+         */
+        private Duration sendTimeLimit = Duration.ofSeconds(10);
+        /**
+         * Maximum amount of data buffered for a slow client before the session is closed.
+         */
+        private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(512);
+        /**
+         * Maximum time from opening a connection until the first message is received.
+         */
+        private Duration timeToFirstMessage = Duration.ofSeconds(60);
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        /**
+         * Drops the frames sent by clients over the limits below.
+         */
+        private boolean enabled = true;
+        /**
+         * Frames a single WebSocket session may send.
+         */
+        private Bucket session = new Bucket(10, 5);
+        /**
+         * Messages the clients of a meeting may send together.
+         */
+        private Bucket meeting = new Bucket(30, 15);
+        /**
+         * Interval at which the buckets that have refilled completely are forgotten.
+         */
+        private Duration evictionInterval = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        /**
+         * Frames that may be sent at once before the refill rate applies.
+         */
+        private int burst;
+        /**
+         * Frames per second that are added back to the bucket.
+         */
+        private double refillPerSecond;
+    }
+}
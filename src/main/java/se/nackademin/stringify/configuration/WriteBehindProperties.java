@@ -0,0 +1,43 @@
+package se.nackademin.stringify.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the write-behind persistence of chat messages.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.messages.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Broadcasts messages before they are persisted and writes them to the database in batches.
+     */
+    private boolean enabled = false;
+    /**
+     * Maximum amount of messages waiting to be written.
+     */
+    private int capacity = 10_000;
+    /**
+     * Maximum amount of messages written in a single JDBC batch.
+     */
+    private int batchSize = 200;
+    /**
+     * Maximum time a message waits in the buffer before its batch is flushed.
+     */
+    private Duration flushInterval = Duration.ofMillis(50);
+    /**
+     * Time a sender waits for free buffer space before the message is written synchronously.
+     */
+    private Duration offerTimeout = Duration.ofMillis(100);
+    /**
+     * Time given to drain the buffer when the application shuts down.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -5,6 +5,7 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import se.nackademin.stringify.controller.response.Meeting;
@@ -24,6 +25,7 @@ import java.util.stream.Collectors;
  * Rest controller for everything to do with meetings.
  */
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("api/meetings")
 @CrossOrigin(origins = {"http://localhost:3000", "https://stringify-chat.netlify.app"})
@@ -1,12 +1,24 @@
 package se.nackademin.stringify.controller.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import se.nackademin.stringify.domain.Message;
 import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.service.MessageService;
+import se.nackademin.stringify.util.MessageCursor;
+import se.nackademin.stringify.util.TranscriptFormat;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -17,23 +29,76 @@ import java.util.stream.Collectors;
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("api/messages")
-@CrossOrigin(origins = {"http://localhost:3000", "https://stringify-chat.netlify.app"})
+@CrossOrigin(origins = {"http://localhost:3000", "https://stringify-chat.netlify.app"},
+        exposedHeaders = MessageController.NEXT_CURSOR_HEADER)
 public class MessageController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final MessageService messageService;
+    private final ObjectMapper objectMapper;
 
 
     @ApiOperation(
-            value = "Find a number of messages by chat-id and page number",
+            value = "Find a number of messages by chat-id and either a cursor or a page number",
             produces = "application/json",
-            notes = "Returns a collection of 5 messages in the given page number from a chat session",
+            notes = "Returns the messages before the given cursor, or the newest messages if no cursor is given. " +
+                    "The cursor for the next, older, page is returned in the X-Next-Cursor header. " +
+                    "If a page number is given the page is read by offset instead, 10 messages per page.",
             response = MessageDto.class
     )
     @GetMapping("history")
-    public List<MessageDto> getHistoryMessages(@RequestParam(name = "chat-id") UUID chatGuid, @RequestParam int page) {
+    public ResponseEntity<List<MessageDto>> getHistoryMessages(
+            @RequestParam(name = "chat-id") UUID chatGuid,
+            @ApiParam("Compatibility mode: page number of 10 messages, newest page first")
+            @RequestParam(required = false) Integer page,
+            @ApiParam("Cursor from the X-Next-Cursor header of the previous page")
+            @RequestParam(required = false) String before,
+            @ApiParam("Number of messages per page, maximum 100")
+            @RequestParam(required = false, defaultValue = "10") int size) {
+
+        if (page != null)
+            return ResponseEntity.ok(messageService.getHistoryPage(chatGuid, page));
+
+        List<Message> messages =
+                messageService.getMessagesBefore(chatGuid, before == null ? null : MessageCursor.parse(before), size);
 
-        return messageService.getMessage(chatGuid, page).stream()
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!messages.isEmpty())
+            response.header(NEXT_CURSOR_HEADER, MessageCursor.of(messages.get(0)).encode());
+
+        return response.body(messages.stream()
                 .map(Message::convertToDto)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    @ApiOperation(
+            value = "Export the whole transcript of a chat session",
+            produces = "application/x-ndjson, text/csv",
+            notes = "Streams every message of the chat session, oldest first, as newline delimited JSON or as CSV. " +
+                    "The response is written while the messages are read, so it has no length limit."
+    )
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportTranscript(
+            @RequestParam(name = "chat-id") UUID chatGuid,
+            @ApiParam("Format of the transcript: ndjson or csv")
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+
+        TranscriptFormat transcriptFormat = TranscriptFormat.fromName(format);
+        UUID chatSessionId = messageService.getChatSessionId(chatGuid);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            messageService.exportTranscript(chatSessionId, transcriptFormat.writer(writer, objectMapper));
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(transcriptFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                        .filename("transcript-" + chatGuid + "." + transcriptFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
     }
 }
@@ -0,0 +1,110 @@
+package se.nackademin.stringify.controller.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * Publishes the broadcasts of a chat session to its subscribers as pre-serialized JSON.
+ * <br />
+ * A payload is serialized once, and the broker hands the same bytes to every subscriber of the meeting and,
+ * in clustered mode, to the other instances. Messages are written field by field from the {@code MessageDto}
+ * also kept by the recent message cache, into a buffer reused by the sending thread, so a message is
+ * converted only once. Only the small per-subscriber STOMP headers are encoded for each session. Connection
+ * notices are serialized when they are stored in the outbox, and published from there.
+ */
+@Component
+public class BroadcastPublisher {
+
+    static final String MEETING_DESTINATION = "/queue/meeting/";
+    public static final String CONNECT_DESTINATION = "/queue/connect/";
+    public static final String DISCONNECT_DESTINATION = "/queue/disconnect/";
+
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final JsonFactory jsonFactory;
+    private final ObjectWriter noticeWriter;
+
+    public BroadcastPublisher(SimpMessageSendingOperations messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.jsonFactory = objectMapper.getFactory();
+        this.noticeWriter = objectMapper.writerFor(ConnectionNotice.class);
+    }
+
+    /**
+     * Publishes a stored message to the subscribers of its chat session.
+     *
+     * @param chatSessionGuid The chat session the message was sent to.
+     * @param message         The stored message.
+     */
+    public void publishMessage(UUID chatSessionGuid, MessageDto message) {
+        publish(MEETING_DESTINATION + chatSessionGuid, encode(message));
+    }
+
+    /**
+     * Publishes a payload that has already been serialized, e.g. a notice from the outbox.
+     *
+     * @param destination The destination of the subscribers.
+     * @param payload     The JSON payload.
+     */
+    public void publish(String destination, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    /**
+     * Serializes a message as the object mapper would serialize it.
+     *
+     * @return the JSON payload.
+     */
+    byte[] encode(MessageDto message) {
+        ByteArrayBuilder buffer = BUFFER.get();
+        buffer.reset();
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeFieldName("guid");
+            if (message.getGuid() == null)
+                generator.writeNull();
+            else
+                generator.writeString(message.getGuid().toString());
+            generator.writeStringField("from", message.getFrom());
+            generator.writeStringField("content", message.getContent());
+            generator.writeStringField("avatar", message.getAvatar());
+            generator.writeStringField("date", message.getDate());
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Serializes a connection notice.
+     *
+     * @return the JSON payload.
+     */
+    public byte[] encode(ConnectionNotice notice) {
+        try {
+            return noticeWriter.writeValueAsBytes(notice);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package se.nackademin.stringify.controller.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.WebSocketProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate of frames sent by clients on the inbound channel.
+ * <br />
+ * Every {@code SEND} frame takes a token from the bucket of its WebSocket session, and every message sent
+ * to a meeting also takes one from the bucket of the meeting, so that neither a single client nor the
+ * clients of one meeting together can flood the database and the broker. A frame is only charged to its
+ * session if it gets through both limits. Frames over the limit are
+ * dropped before they reach a controller. A STOMP {@code ERROR} frame would close the connection, so the
+ * client is not told; the drops are counted instead.
+ * <br />
+ * A bucket that has refilled completely is indistinguishable from a new one and is forgotten by
+ * {@code evictFull()}.
+ */
+@Slf4j
+@Component
+public class InboundRateLimitInterceptor implements ChannelInterceptor {
+
+    static final String MEETING_DESTINATION_PREFIX = "/app/send/meeting/";
+
+    private final WebSocketProperties.RateLimit properties;
+    private final long sessionEmissionInterval;
+    private final long meetingEmissionInterval;
+    private final Map<String, TokenBucket> bucketsBySession = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> bucketsByMeeting = new ConcurrentHashMap<>();
+    private final LongAdder rejectedBySession = new LongAdder();
+    private final LongAdder rejectedByMeeting = new LongAdder();
+
+    public InboundRateLimitInterceptor(WebSocketProperties webSocketProperties) {
+        this.properties = webSocketProperties.getRateLimit();
+        this.sessionEmissionInterval = emissionInterval(properties.getSession());
+        this.meetingEmissionInterval = emissionInterval(properties.getMeeting());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+
+        if (messageType == SimpMessageType.DISCONNECT) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            if (sessionId != null)
+                bucketsBySession.remove(sessionId);
+            return message;
+        }
+        if (messageType != SimpMessageType.MESSAGE || !properties.isEnabled())
+            return message;
+
+        return tryAcquire(SimpMessageHeaderAccessor.getSessionId(headers),
+                SimpMessageHeaderAccessor.getDestination(headers), System.nanoTime()) ? message : null;
+    }
+
+    /**
+     * Takes a token for a frame from the buckets of its session and, for a chat message, of its meeting. A
+     * frame dropped over the meeting limit gives its session token back, so that the clients of a flooded
+     * meeting keep their own budget.
+     *
+     * @param sessionId   The id of the WebSocket session that sent the frame.
+     * @param destination The destination of the frame.
+     * @param now         The current {@code System.nanoTime()}.
+     * @return {@code true} if the frame is within the limits; {@code false} if it should be dropped.
+     */
+    boolean tryAcquire(String sessionId, String destination, long now) {
+        TokenBucket sessionBucket = null;
+        if (sessionId != null) {
+            sessionBucket = bucket(bucketsBySession, sessionId, properties.getSession(), sessionEmissionInterval, now);
+            if (!sessionBucket.tryAcquire(now)) {
+                rejectedBySession.increment();
+                log.debug("Dropped frame to {} from session {} over the session rate limit", destination, sessionId);
+                return false;
+            }
+        }
+        if (destination != null && destination.startsWith(MEETING_DESTINATION_PREFIX)
+                && !bucket(bucketsByMeeting, destination, properties.getMeeting(),
+                meetingEmissionInterval, now).tryAcquire(now)) {
+            if (sessionBucket != null)
+                sessionBucket.refund();
+            rejectedByMeeting.increment();
+            log.debug("Dropped frame to {} from session {} over the meeting rate limit", destination, sessionId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the buckets that have refilled completely.
+     */
+    @Scheduled(fixedDelayString = "#{@webSocketProperties.rateLimit.evictionInterval.toMillis()}")
+    public void evictFull() {
+        long now = System.nanoTime();
+        bucketsBySession.values().removeIf(bucket -> bucket.isFull(now));
+        bucketsByMeeting.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * @return The number of buckets of sessions and meetings that are being tracked.
+     */
+    public int size() {
+        return bucketsBySession.size() + bucketsByMeeting.size();
+    }
+
+    /**
+     * @return The number of frames dropped over the limit of their WebSocket session.
+     */
+    public long getRejectedBySession() {
+        return rejectedBySession.sum();
+    }
+
+    /**
+     * @return The number of frames dropped over the limit of their meeting.
+     */
+    public long getRejectedByMeeting() {
+        return rejectedByMeeting.sum();
+    }
+
+    private static TokenBucket bucket(Map<String, TokenBucket> buckets, String key,
+                                      WebSocketProperties.Bucket limit, long emissionInterval, long now) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket != null ? bucket
+                : buckets.computeIfAbsent(key, k -> new TokenBucket(limit.getBurst(), emissionInterval, now));
+    }
+
+    private static long emissionInterval(WebSocketProperties.Bucket limit) {
+        if (limit.getBurst() < 1 || limit.getRefillPerSecond() <= 0)
+            throw new IllegalArgumentException("A rate limit needs a burst of at least 1 and a positive refill rate");
+
+        return Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / limit.getRefillPerSecond()));
+    }
+}
@@ -2,71 +2,81 @@ package se.nackademin.stringify.controller.websocket;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
-import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.domain.Profile;
 import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.dto.ProfileDto;
+import se.nackademin.stringify.service.DisconnectCleanup;
 import se.nackademin.stringify.service.LiveCommunicationService;
 
 import javax.validation.Valid;
 import java.util.UUID;
 
 /**
- * A controller class to handle the websocket connection to a chatSession
+ * A controller class to handle the websocket connection to a chatSession. Broadcasts are serialized once by
+ * {@code BroadcastPublisher} and shared by every subscriber of the chat session. Connection notices are
+ * published from the notice outbox once the profile change has been committed.
  */
 @Controller
 @RequiredArgsConstructor
 public class LiveCommunicationController {
 
     private final LiveCommunicationService liveCommunicationService;
+    private final BroadcastPublisher broadcastPublisher;
+    private final DisconnectCleanup disconnectCleanup;
 
     /**
-     * Receives and transmits messages between clients who connected.
+     * Receives and transmits messages between clients who connected. The stored message is published to
+     * {@code /queue/meeting/{chatSessionGuid}}.
      *
      * @param chatSessionGuid DESTINATION: The specific chat session ID to connect to.
      * @param messageDto      The message sent from the a client connected to session.
-     * @return {@code MessageDto.class}
      */
     @MessageMapping("/send/meeting/{chatSessionGuid}")
-    @SendTo("/queue/meeting/{chatSessionGuid}")
-    public MessageDto transmit(@DestinationVariable UUID chatSessionGuid,
-                               @Payload @Valid MessageDto messageDto) {
+    public void transmit(@DestinationVariable UUID chatSessionGuid,
+                         @Payload @Valid MessageDto messageDto) {
 
-        return liveCommunicationService.storeMessage(chatSessionGuid, messageDto.convertToEntity())
-                .convertToDto();
+        broadcastPublisher.publishMessage(chatSessionGuid,
+                liveCommunicationService.storeMessage(chatSessionGuid, messageDto.convertToEntity()));
     }
 
     /**
-     * Whenever a client connects to a session a connection notice will be received and published.
+     * Whenever a client connects to a session a connection notice will be stored and published to
+     * {@code /queue/connect/{chatSessionGuid}}. The notice contains a profile and a message. The profile is
+     * bound to the WebSocket session, so that it is removed if the connection is dropped.
      *
      * @param chatSessionGuid DESTINATION: The specific chat session ID to connect to.
      * @param profile         The profile created by the client.
-     * @return {@code ConnectionNotice.class} - Contains a profile and a message.
+     * @param sessionId       The id of the client's WebSocket session.
      */
     @MessageMapping("/connect/{chatSessionGuid}")
-    @SendTo("/queue/connect/{chatSessionGuid}")
-    public ConnectionNotice notifyOnConnect(@DestinationVariable UUID chatSessionGuid,
-                                            @Payload @Valid ProfileDto profile) {
-        return liveCommunicationService.storeProfileConnected(chatSessionGuid,
-                profile.convertToEntity());
+    public void notifyOnConnect(@DestinationVariable UUID chatSessionGuid,
+                                @Payload @Valid ProfileDto profile,
+                                @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        Profile connectedProfile = profile.convertToEntity();
+        liveCommunicationService.storeProfileConnected(chatSessionGuid, connectedProfile);
+        disconnectCleanup.profileConnected(sessionId, chatSessionGuid, connectedProfile);
     }
 
     /**
-     * Whenever a client disconnects from a session a connection notice will be received and published.
+     * Whenever a client disconnects from a session a connection notice will be stored and published to
+     * {@code /queue/disconnect/{chatSessionGuid}}. The notice contains a profile and a message. No notice
+     * is published if the chat session was deleted with its last profile.
      *
      * @param chatSessionGuid DESTINATION: The specific chat session ID to connect to.
      * @param profile         The profile created by the client.
-     * @return {@code ConnectionNotice.class} - Contains a profile and a message.
+     * @param sessionId       The id of the client's WebSocket session.
      */
     @MessageMapping("/disconnect/{chatSessionGuid}")
-    @SendTo("/queue/disconnect/{chatSessionGuid}")
-    public ConnectionNotice notifyOnDisconnect(@DestinationVariable UUID chatSessionGuid,
-                                               @Payload @Valid ProfileDto profile) {
-        return liveCommunicationService.removeProfileDisconnected(chatSessionGuid,
-                profile.convertToEntity());
+    public void notifyOnDisconnect(@DestinationVariable UUID chatSessionGuid,
+                                   @Payload @Valid ProfileDto profile,
+                                   @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        disconnectCleanup.profileDisconnected(sessionId, profile.getGuid());
+        liveCommunicationService.removeProfileDisconnected(chatSessionGuid, profile.convertToEntity());
     }
 
 }
@@ -0,0 +1,62 @@
+package se.nackademin.stringify.controller.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, implemented as a generic cell rate algorithm.
+ * <br />
+ * Instead of a token count the bucket keeps the theoretical arrival time: the time at which the bucket
+ * would be full again if no further frame arrived. Each accepted frame pushes it one emission interval
+ * further, and a frame is rejected when that would put it more than the burst ahead of the current time.
+ * A single compare-and-set on one {@code long} both checks and takes a token.
+ */
+class TokenBucket {
+
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param burst            Frames that may be sent at once from a full bucket.
+     * @param emissionInterval Nanoseconds it takes to refill one token.
+     * @param now              The current {@code System.nanoTime()}.
+     */
+    TokenBucket(int burst, long emissionInterval, long now) {
+        this.emissionInterval = emissionInterval;
+        this.burstTolerance = burst * emissionInterval;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now The current {@code System.nanoTime()}.
+     * @return {@code true} if a token was taken; {@code false} if the bucket is empty.
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = (arrival - now < 0 ? now : arrival) + emissionInterval;
+            if (next - now > burstTolerance)
+                return false;
+            if (theoreticalArrival.compareAndSet(arrival, next))
+                return true;
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@code tryAcquire()}, e.g. when the frame was dropped by another limit.
+     * A bucket that has refilled meanwhile ends up full and no fuller.
+     */
+    void refund() {
+        theoreticalArrival.addAndGet(-emissionInterval);
+    }
+
+    /**
+     * @param now The current {@code System.nanoTime()}.
+     * @return {@code true} if the bucket has refilled completely, so that a new bucket would behave the same.
+     */
+    boolean isFull(long now) {
+        return theoreticalArrival.get() - now <= 0;
+    }
+}
@@ -2,6 +2,7 @@ package se.nackademin.stringify.domain;
 
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import se.nackademin.stringify.dto.ChatSessionDto;
@@ -28,10 +29,11 @@ public class ChatSession implements IConvertDto<ChatSessionDto> {
     @OneToMany(mappedBy = "chatSession", cascade = CascadeType.ALL)
     List<Message> messages;
     @OnDelete(action = OnDeleteAction.CASCADE)
-    @OneToMany(mappedBy = "chatSession", cascade = {CascadeType.ALL, CascadeType.REMOVE}, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "chatSession", cascade = {CascadeType.ALL, CascadeType.REMOVE}, fetch = FetchType.LAZY)
     List<Profile> profilesConnected;
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
     private UUID id;
     private UUID guid = UUID.randomUUID();
     @CreationTimestamp
@@ -39,6 +41,17 @@ public class ChatSession implements IConvertDto<ChatSessionDto> {
     @Column(unique = true)
     private String key;
     private String connectUrl;
+    /**
+     * The number of connected profiles, kept current on connect and disconnect so that it can be read
+     * without loading the profiles.
+     */
+    @Column(name = "connected_count", nullable = false, columnDefinition = "integer default 0")
+    private int connectedCount;
+    /**
+     * The maximum number of connected profiles, or {@code null} for the configured default capacity.
+     */
+    @Column(name = "max_connections")
+    private Integer maxConnections;
 
     /***
      * Converts Entity to related data transfer object.
@@ -1,8 +1,10 @@
 package se.nackademin.stringify.domain;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
 import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.util.DateUtil;
+import se.nackademin.stringify.util.TimeOrderedUuid;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -14,7 +16,9 @@ import java.util.UUID;
 @Builder
 @Setter
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = @Index(
+        name = "idx_message_chat_session_date_guid",
+        columnList = "chat_session_id, date, guid"))
 @NoArgsConstructor
 @AllArgsConstructor
 /***
@@ -23,9 +27,10 @@ import java.util.UUID;
 public class Message implements IConvertDto<MessageDto> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
     private UUID id;
-    private UUID guid = UUID.randomUUID();
+    private UUID guid = TimeOrderedUuid.generate();
 
     @NotBlank(message = "Sender cannot be empty!")
     @Size(min = 3, max = 30)
@@ -37,7 +42,8 @@ public class Message implements IConvertDto<MessageDto> {
     private String content;
     private String avatar;
     private Timestamp date;
-    @ManyToOne(cascade = CascadeType.PERSIST)
+    @ManyToOne
+    @JoinColumn(name = "chat_session_id")
     private ChatSession chatSession;
 
     /**
@@ -0,0 +1,33 @@
+package se.nackademin.stringify.domain;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "notice_outbox", indexes = @Index(name = "idx_notice_outbox_created", columnList = "created"))
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+/***
+ * Model for a connection notice that has been stored with its profile change and is waiting to be
+ * published, containing id, destination, the serialized notice and the time it was stored.
+ */
+public class OutboxNotice {
+
+    @Id
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
+    private UUID id;
+    @Column(nullable = false)
+    private String destination;
+    @Column(nullable = false, length = 4096)
+    private byte[] payload;
+    @Column(nullable = false)
+    private Timestamp created;
+}
@@ -1,6 +1,7 @@
 package se.nackademin.stringify.domain;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
 import se.nackademin.stringify.dto.ProfileDto;
 
 import javax.persistence.*;
@@ -11,7 +12,7 @@ import java.util.UUID;
 @Getter
 @Setter
 @Entity
-@Table(name = "profile")
+@Table(name = "profile", indexes = @Index(name = "idx_profile_chat_session", columnList = "chat_session_id"))
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -21,14 +22,16 @@ import java.util.UUID;
 public class Profile implements IConvertDto<ProfileDto> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = TimeOrderedUuidGenerator.NAME)
+    @GenericGenerator(name = TimeOrderedUuidGenerator.NAME, strategy = TimeOrderedUuidGenerator.STRATEGY)
     private UUID id;
     private UUID guid = UUID.randomUUID();
     @NotBlank(message = "Please provide the name of the profile")
     @Size(min = 3, max = 30)
     private String name;
     private String avatar;
-    @ManyToOne(cascade = CascadeType.PERSIST)
+    @ManyToOne
+    @JoinColumn(name = "chat_session_id")
     private ChatSession chatSession;
 
     /***
@@ -0,0 +1,22 @@
+package se.nackademin.stringify.domain;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import se.nackademin.stringify.util.TimeOrderedUuid;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate identifier generator for time-ordered UUID primary keys. The identifiers are generated in
+ * memory, so inserts can still be grouped into JDBC batches.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    public static final String NAME = "time-ordered-uuid";
+    public static final String STRATEGY = "se.nackademin.stringify.domain.TimeOrderedUuidGenerator";
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return TimeOrderedUuid.generate();
+    }
+}
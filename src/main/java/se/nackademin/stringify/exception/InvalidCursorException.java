@@ -0,0 +1,11 @@
+package se.nackademin.stringify.exception;
+
+/**
+ * Used when a history cursor cannot be decoded.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
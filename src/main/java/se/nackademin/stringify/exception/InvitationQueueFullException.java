@@ -0,0 +1,11 @@
+package se.nackademin.stringify.exception;
+
+/**
+ * Used when an invitation cannot be accepted because the invitation queue is full.
+ */
+public class InvitationQueueFullException extends RuntimeException {
+
+    public InvitationQueueFullException(String message) {
+        super(message);
+    }
+}
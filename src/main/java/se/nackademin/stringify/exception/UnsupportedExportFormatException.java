@@ -0,0 +1,11 @@
+package se.nackademin.stringify.exception;
+
+/**
+ * Used when a transcript is requested in a format that cannot be exported.
+ */
+public class UnsupportedExportFormatException extends RuntimeException {
+
+    public UnsupportedExportFormatException(String message) {
+        super(message);
+    }
+}
@@ -12,11 +12,15 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 import se.nackademin.stringify.exception.ChatSessionNotFoundException;
 import se.nackademin.stringify.exception.ConnectionLimitException;
+import se.nackademin.stringify.exception.InvalidCursorException;
 import se.nackademin.stringify.exception.InvalidKeyException;
+import se.nackademin.stringify.exception.InvitationQueueFullException;
 import se.nackademin.stringify.exception.ProfileNotFoundException;
+import se.nackademin.stringify.exception.UnsupportedExportFormatException;
 import se.nackademin.stringify.exception.response.ErrorResponse;
 import se.nackademin.stringify.util.DateUtil;
 
+import javax.validation.ConstraintViolationException;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -72,7 +76,7 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
      * @param ex The exception that occurs
      * @return {@code ResponseEntity.class, ErrorResponse.class}
      */
-    @ExceptionHandler(ConnectionLimitException.class)
+    @ExceptionHandler({ConnectionLimitException.class, InvitationQueueFullException.class})
     public ResponseEntity<ErrorResponse> handleConnectionLimitException(Exception ex) {
         return getAndLogApiException(HttpStatus.SERVICE_UNAVAILABLE, ex);
     }
@@ -83,8 +87,9 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
      * @param ex The exception that occurs
      * @return {@code ResponseEntity.class, ErrorResponse.class}
      */
-    @ExceptionHandler(InvalidKeyException.class)
-    public ResponseEntity<ErrorResponse> handleInvalidKeyException(Exception ex) {
+    @ExceptionHandler({InvalidKeyException.class, InvalidCursorException.class,
+            UnsupportedExportFormatException.class, ConstraintViolationException.class})
+    public ResponseEntity<ErrorResponse> handleBadRequestException(Exception ex) {
         return getAndLogApiException(HttpStatus.BAD_REQUEST, ex);
     }
 
@@ -1,9 +1,15 @@
 package se.nackademin.stringify.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import se.nackademin.stringify.domain.ChatSession;
 
+import java.sql.Timestamp;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,4 +24,37 @@ public interface ChatSessionRepository extends JpaRepository<ChatSession, UUID>
     Optional<ChatSession> findByKey(String key);
 
     boolean existsByGuid(UUID guid);
+
+    @Query("SELECT c.id FROM ChatSession c WHERE c.guid = :guid")
+    Optional<UUID> findIdByGuid(@Param("guid") UUID guid);
+
+    @Query("SELECT c.created FROM ChatSession c WHERE c.id = :id")
+    Optional<Timestamp> findCreatedById(@Param("id") UUID id);
+
+    @Query("SELECT c.key FROM ChatSession c WHERE c.key IS NOT NULL")
+    List<String> findAllKeys();
+
+    /**
+     * Increments the connection count of a chat session unless it has reached the given capacity.
+     *
+     * @return {@code 1} if the count was incremented; {@code 0} if the chat session is full.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatSession c SET c.connectedCount = c.connectedCount + 1 " +
+            "WHERE c.id = :id AND c.connectedCount < :capacity")
+    int incrementConnectedCount(@Param("id") UUID id, @Param("capacity") int capacity);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatSession c SET c.connectedCount = c.connectedCount - 1 WHERE c.id = :id AND c.connectedCount > 0")
+    int decrementConnectedCount(@Param("id") UUID id);
+
+    /**
+     * Deletes a chat session in a single statement. Its messages and profiles must have been deleted first.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatSession c WHERE c.id = :id")
+    int deleteInBulkById(@Param("id") UUID id);
 }
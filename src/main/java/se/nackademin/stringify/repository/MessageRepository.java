@@ -2,11 +2,23 @@ package se.nackademin.stringify.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import se.nackademin.stringify.domain.Message;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * A repository for Message
@@ -14,5 +26,67 @@ import java.util.UUID;
 @Repository
 public interface MessageRepository extends JpaRepository<Message, UUID> {
 
-    List<Message> findAllByChatSession_Guid(UUID chatSessionGuid, Pageable pageable);
+    /**
+     * Finds a page of the messages of a chat session that are not older than {@code since}.
+     */
+    List<Message> findAllByChatSession_IdAndDateGreaterThanEqual(UUID chatSessionId, Timestamp since,
+                                                                 Pageable pageable);
+
+    /**
+     * Finds the newest messages of a chat session that are not older than {@code since}, newest first.
+     * The pageable is only used to limit the result.
+     */
+    List<Message> findAllByChatSession_IdAndDateGreaterThanEqualOrderByDateDescGuidDesc(UUID chatSessionId,
+                                                                                        Timestamp since,
+                                                                                        Pageable limit);
+
+    /**
+     * Finds the messages of a chat session older than the given (date, guid) position, newest first.
+     * The pageable is only used to limit the result, so the cost does not grow with the depth of the history.
+     * The date range is repeated outside of the position, so that partitions outside of it can be skipped.
+     */
+    @Query("SELECT m FROM Message m WHERE m.chatSession.id = :chatSessionId " +
+            "AND m.date >= :since AND m.date <= :date " +
+            "AND (m.date < :date OR (m.date = :date AND m.guid < :guid)) " +
+            "ORDER BY m.date DESC, m.guid DESC")
+    List<Message> findAllBefore(@Param("chatSessionId") UUID chatSessionId,
+                                @Param("since") Timestamp since,
+                                @Param("date") Timestamp date,
+                                @Param("guid") UUID guid,
+                                Pageable limit);
+
+    /**
+     * Streams every message of a chat session that is not older than {@code since}, oldest first. Rows are
+     * fetched from a database cursor 500 at a time, so the stream must be consumed and closed inside a
+     * transaction.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT m FROM Message m WHERE m.chatSession.id = :chatSessionId AND m.date >= :since " +
+            "ORDER BY m.date ASC, m.guid ASC")
+    Stream<Message> streamAllByChatSessionId(@Param("chatSessionId") UUID chatSessionId,
+                                             @Param("since") Timestamp since);
+
+    /**
+     * Deletes every message of a chat session in a single statement, without loading them.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.chatSession.id = :chatSessionId")
+    int deleteAllInBulkByChatSessionId(@Param("chatSessionId") UUID chatSessionId);
+
+    /**
+     * The earliest date a message of a chat session created at the given time can have. Reads of the
+     * messages of a chat session are bounded by it, so that the database skips the partitions of the days
+     * before the session. A minute is subtracted in case the clocks of the instances are slightly apart.
+     *
+     * @param chatSessionCreated The creation date of the chat session, or {@code null} if it is unknown
+     * @return the lower bound of the message dates
+     */
+    static Timestamp earliestMessageDate(Timestamp chatSessionCreated) {
+        if (chatSessionCreated == null)
+            return new Timestamp(0);
+
+        return new Timestamp(chatSessionCreated.getTime() - TimeUnit.MINUTES.toMillis(1));
+    }
 }
@@ -0,0 +1,27 @@
+package se.nackademin.stringify.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import se.nackademin.stringify.domain.OutboxNotice;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A repository for OutboxNotice
+ */
+@Repository
+public interface OutboxNoticeRepository extends JpaRepository<OutboxNotice, UUID> {
+
+    List<OutboxNotice> findByCreatedBeforeOrderByIdAsc(Timestamp created, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OutboxNotice n WHERE n.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<UUID> ids);
+}
@@ -1,7 +1,11 @@
 package se.nackademin.stringify.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import se.nackademin.stringify.domain.Profile;
 
 import java.util.List;
@@ -19,4 +23,33 @@ public interface ProfileRepository extends JpaRepository<Profile, UUID> {
     Optional<Profile> findAllByGuidAndChatSession_Guid(UUID guid, UUID chatSession_guid);
 
     List<Profile> findAllByChatSession_Id(UUID chatSession_id);
+
+    long countByChatSession_Id(UUID chatSession_id);
+
+    @Query("SELECT p.guid FROM Profile p WHERE p.chatSession.id = :chatSessionId")
+    List<UUID> findGuidsByChatSessionId(@Param("chatSessionId") UUID chatSessionId);
+
+    /**
+     * Deletes a profile from a chat session and decrements the connection count of the session in a single
+     * statement. The remaining count is read from the updated session row, whose lock orders concurrent
+     * disconnects, so that the last of them sees the count reach zero. The ids are passed as text and cast by
+     * PostgreSQL, since Hibernate does not bind {@code UUID} parameters of native queries as {@code uuid}.
+     *
+     * @return The number of profiles left in the chat session, or {@code -1} if the profile was not found.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = "WITH deleted AS (" +
+            "DELETE FROM profile WHERE guid = CAST(:guid AS uuid) AND chat_session_id = CAST(:chatSessionId AS uuid) " +
+            "RETURNING id), " +
+            "decremented AS (" +
+            "UPDATE chatsession SET connected_count = GREATEST(connected_count - (SELECT count(*) FROM deleted), 0) " +
+            "WHERE id = CAST(:chatSessionId AS uuid) AND EXISTS (SELECT 1 FROM deleted) " +
+            "RETURNING connected_count) " +
+            "SELECT CAST(COALESCE((SELECT connected_count FROM decremented), -1) AS bigint)")
+    long deleteAndCountRemaining(@Param("guid") String guid, @Param("chatSessionId") String chatSessionId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Profile p WHERE p.chatSession.id = :chatSessionId")
+    int deleteAllInBulkByChatSessionId(@Param("chatSessionId") UUID chatSessionId);
 }
@@ -0,0 +1,141 @@
+package se.nackademin.stringify.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import se.nackademin.stringify.cache.WebSocketSessionIndex;
+import se.nackademin.stringify.configuration.SessionCleanupProperties;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.exception.ChatSessionNotFoundException;
+import se.nackademin.stringify.exception.ProfileNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Removes the profiles whose WebSocket connection was dropped without a disconnect message, e.g. because
+ * the browser tab was closed or the client stopped answering heartbeats.
+ * <br />
+ * A profile is bound to its WebSocket session when it connects to a chat session. When the session closes
+ * while still bound, the profile is given a grace period to reconnect, after which it is removed like an
+ * explicit disconnect. The removals run in batches on the scheduler, each in its own transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DisconnectCleanup {
+
+    private final SessionCleanupProperties properties;
+    private final WebSocketSessionIndex webSocketSessionIndex;
+    private final LiveCommunicationService liveCommunicationService;
+    private final Map<UUID, DroppedProfile> droppedByProfileGuid = new ConcurrentHashMap<>();
+
+    /**
+     * Binds a connected profile to its WebSocket session and cancels its removal if it reconnected in time.
+     *
+     * @param sessionId       The id of the WebSocket session.
+     * @param chatSessionGuid The guid of the chat session.
+     * @param profile         The connected profile.
+     */
+    public void profileConnected(String sessionId, UUID chatSessionGuid, Profile profile) {
+        droppedByProfileGuid.remove(profile.getGuid());
+        webSocketSessionIndex.bind(sessionId, chatSessionGuid, profile);
+    }
+
+    /**
+     * Unbinds a profile that disconnected explicitly, so that closing its WebSocket session does not remove
+     * it a second time.
+     *
+     * @param sessionId   The id of the WebSocket session.
+     * @param profileGuid The guid of the disconnected profile.
+     */
+    public void profileDisconnected(String sessionId, UUID profileGuid) {
+        webSocketSessionIndex.unbind(sessionId);
+        if (profileGuid != null)
+            droppedByProfileGuid.remove(profileGuid);
+    }
+
+    /**
+     * Schedules the removal of the profile bound to a closed WebSocket session.
+     */
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        long removeAt = System.nanoTime() + properties.getGracePeriod().toNanos();
+        webSocketSessionIndex.unbind(event.getSessionId()).ifPresent(binding -> {
+            log.debug("Connection of profile {} to {} was dropped ({})", binding.getProfile().getGuid(),
+                    binding.getChatSessionGuid(), event.getCloseStatus());
+            droppedByProfileGuid.put(binding.getProfile().getGuid(), new DroppedProfile(binding, removeAt));
+        });
+    }
+
+    /**
+     * Removes the dropped profiles whose grace period has passed, at most the configured batch size per run.
+     */
+    @Scheduled(fixedDelayString = "#{@sessionCleanupProperties.interval.toMillis()}")
+    public void removeDropped() {
+        long now = System.nanoTime();
+        int removed = 0;
+        List<DroppedProfile> failed = new ArrayList<>();
+
+        for (DroppedProfile dropped : droppedByProfileGuid.values()) {
+            if (removed == properties.getBatchSize())
+                break;
+            if (dropped.removeAt - now > 0)
+                continue;
+
+            Profile profile = dropped.binding.getProfile();
+            if (!droppedByProfileGuid.remove(profile.getGuid(), dropped))
+                continue;
+
+            if (!remove(dropped))
+                failed.add(dropped);
+            removed++;
+        }
+
+        failed.forEach(dropped -> droppedByProfileGuid.putIfAbsent(dropped.binding.getProfile().getGuid(), dropped));
+    }
+
+    /**
+     * @return The number of dropped profiles waiting to be removed.
+     */
+    public int size() {
+        return droppedByProfileGuid.size();
+    }
+
+    /**
+     * Removes a dropped profile like an explicit disconnect.
+     *
+     * @return {@code true} if the profile is gone; {@code false} if the removal should be retried.
+     */
+    private boolean remove(DroppedProfile dropped) {
+        UUID chatSessionGuid = dropped.binding.getChatSessionGuid();
+        Profile profile = dropped.binding.getProfile();
+        try {
+            liveCommunicationService.removeProfileDisconnected(chatSessionGuid, profile);
+        } catch (ProfileNotFoundException | ChatSessionNotFoundException ex) {
+            log.debug("Dropped profile {} had already left {}", profile.getGuid(), chatSessionGuid);
+        } catch (RuntimeException ex) {
+            log.warn("Could not remove dropped profile {} from {}, retrying: {}", profile.getGuid(),
+                    chatSessionGuid, ex.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private static class DroppedProfile {
+
+        private final WebSocketSessionIndex.Binding binding;
+        private final long removeAt;
+
+        DroppedProfile(WebSocketSessionIndex.Binding binding, long removeAt) {
+            this.binding = binding;
+            this.removeAt = removeAt;
+        }
+    }
+}
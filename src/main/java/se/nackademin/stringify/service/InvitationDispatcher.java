@@ -0,0 +1,231 @@
+package se.nackademin.stringify.service;
+
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.InvitationProperties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded queue of invitations that are sent in the background, so that request threads do not wait
+ * for the mail provider.
+ * <br />
+ * Invitations arriving close together are coalesced into a single mail with one personalization per
+ * recipient. A mail that fails with a connection error, a 429 or a 5xx status is retried with an
+ * exponential backoff. A mail rejected with another 4xx status is split in halves that are sent again, so
+ * that a single rejected recipient does not drop the whole batch; a rejected single invitation is logged
+ * and dropped.
+ */
+@Slf4j
+@Component
+public class InvitationDispatcher {
+
+    private final InvitationProperties properties;
+    private final MailTransport mailTransport;
+    private final BlockingQueue<Personalization> queue;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    private volatile boolean running;
+    private Thread collector;
+    private ScheduledThreadPoolExecutor senders;
+
+    public InvitationDispatcher(InvitationProperties properties, MailTransport mailTransport) {
+        this.properties = properties;
+        this.mailTransport = mailTransport;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+    }
+
+    /**
+     * Starts the collecting thread and the sender pool.
+     */
+    @PostConstruct
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("invitation-sender-");
+        threadFactory.setDaemon(true);
+        senders = new ScheduledThreadPoolExecutor(properties.getSenderThreads(), threadFactory);
+        senders.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        running = true;
+        collector = new Thread(this::collectLoop, "invitation-dispatcher");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /**
+     * Stops accepting invitations and sends the queued ones. Retries that are not yet due are dropped.
+     */
+    @PreDestroy
+    public void stop() {
+        if (collector == null)
+            return;
+
+        running = false;
+        try {
+            collector.join(properties.getShutdownTimeout().toMillis());
+            senders.shutdown();
+            if (!senders.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                senders.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!queue.isEmpty())
+            log.warn("{} invitations were not sent before shutdown", queue.size());
+    }
+
+    /**
+     * Queues an invitation to be sent.
+     *
+     * @param invitation The recipient and template data of the invitation.
+     * @return {@code true} if the invitation was queued; {@code false} if the queue is full or stopped.
+     */
+    public boolean dispatch(Personalization invitation) {
+        return running && queue.offer(invitation);
+    }
+
+    /**
+     * @return The amount of invitations waiting to be sent.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of invitations accepted by the mail provider.
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return The number of invitations given up on.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of invitations scheduled for another attempt.
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    private void collectLoop() {
+        final long lingerNanos = properties.getLingerTime().toNanos();
+        final int batchSize = properties.getBatchSize();
+
+        while (running || !queue.isEmpty()) {
+            List<Personalization> batch = new ArrayList<>(batchSize);
+            try {
+                Personalization first = queue.poll(lingerNanos, TimeUnit.NANOSECONDS);
+                if (first == null)
+                    continue;
+
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        break;
+
+                    Personalization next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty())
+                schedule(batch, 1, 0);
+        }
+    }
+
+    private void schedule(List<Personalization> batch, int attempt, long delayMillis) {
+        try {
+            senders.schedule(() -> send(batch, attempt), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            failed.add(batch.size());
+            log.warn("Dropped {} invitations, the dispatcher is shutting down", batch.size());
+        }
+    }
+
+    void send(List<Personalization> batch, int attempt) {
+        Mail mail = new Mail();
+        mail.setFrom(new Email(properties.getFrom()));
+        mail.setTemplateId(properties.getTemplateId());
+        batch.forEach(mail::addPersonalization);
+
+        try {
+            int status = mailTransport.send(mail);
+            if (status >= 200 && status < 300) {
+                sent.add(batch.size());
+                return;
+            }
+            if (status != 429 && status < 500) {
+                rejected(batch, attempt, status);
+                return;
+            }
+            log.warn("Mail provider responded {} to {} invitations (attempt {})", status, batch.size(), attempt);
+        } catch (IOException ex) {
+            log.warn("Could not send {} invitations (attempt {}): {}", batch.size(), attempt, ex.getMessage());
+        }
+
+        if (attempt >= properties.getMaxAttempts()) {
+            failed.add(batch.size());
+            log.warn("Gave up on {} invitations after {} attempts", batch.size(), attempt);
+            return;
+        }
+
+        retried.add(batch.size());
+        schedule(batch, attempt + 1, backoffMillis(attempt));
+    }
+
+    /**
+     * Splits a rejected batch in halves and sends them again right away, until the rejected invitations are
+     * isolated and dropped.
+     */
+    private void rejected(List<Personalization> batch, int attempt, int status) {
+        if (batch.size() == 1) {
+            failed.increment();
+            log.warn("Mail provider rejected an invitation with status {}", status);
+            return;
+        }
+
+        int half = batch.size() / 2;
+        log.debug("Mail provider rejected {} invitations with status {}, splitting them", batch.size(), status);
+        schedule(new ArrayList<>(batch.subList(0, half)), attempt, 0);
+        schedule(new ArrayList<>(batch.subList(half, batch.size())), attempt, 0);
+    }
+
+    /**
+     * Exponential backoff with jitter, so that retries of several batches do not hit the provider at once.
+     */
+    private long backoffMillis(int attempt) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long backoff = Math.min(properties.getMaxBackoff().toMillis(), initial << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+}
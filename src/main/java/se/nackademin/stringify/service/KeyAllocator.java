@@ -0,0 +1,79 @@
+package se.nackademin.stringify.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.repository.ChatSessionRepository;
+import se.nackademin.stringify.util.Key;
+
+import javax.annotation.PostConstruct;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out keys that are not used by any live chat session.
+ * <br />
+ * Allocated keys are kept in a concurrent set that is seeded with the keys stored in the database on startup.
+ * A key is claimed atomically by adding it to the set, so concurrent meeting creation never receives the same
+ * key twice, and it is released again when its chat session is deleted.
+ * <br />
+ * In cluster mode no keys are claimed, since chat sessions are created and deleted through every instance.
+ * Keys are only generated, and a key in use is detected by the unique constraint when the session is saved.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KeyAllocator {
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final ClusterProperties clusterProperties;
+    private final Set<String> allocatedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Claims the keys of the chat sessions already stored in the database.
+     */
+    @PostConstruct
+    public void loadAllocatedKeys() {
+        if (clusterProperties.isEnabled())
+            return;
+
+        allocatedKeys.addAll(chatSessionRepository.findAllKeys());
+        log.info("{} meeting keys in use", allocatedKeys.size());
+    }
+
+    /**
+     * Generates a key and claims it.
+     *
+     * @return a key that is not used by any other live chat session
+     */
+    public Key allocate() {
+        if (clusterProperties.isEnabled())
+            return Key.generate();
+
+        Key key;
+        do {
+            key = Key.generate();
+        } while (!allocatedKeys.add(key.toString()));
+
+        return key;
+    }
+
+    /**
+     * Releases the key of a deleted chat session so that it can be handed out again.
+     *
+     * @param key The key of the deleted chat session.
+     */
+    public void release(String key) {
+        if (key != null)
+            allocatedKeys.remove(key);
+    }
+
+    /**
+     * @param key The key to check.
+     * @return {@code true} if the key is claimed by a live chat session; {@code false} otherwise
+     */
+    public boolean isAllocated(String key) {
+        return allocatedKeys.contains(key);
+    }
+}
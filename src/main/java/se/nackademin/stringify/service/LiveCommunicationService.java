@@ -1,19 +1,30 @@
 package se.nackademin.stringify.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.nackademin.stringify.cache.ActiveSession;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.RecentMessageCache;
 import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.controller.websocket.BroadcastPublisher;
 import se.nackademin.stringify.domain.ChatSession;
 import se.nackademin.stringify.domain.Message;
 import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.dto.ProfileDto;
 import se.nackademin.stringify.exception.ChatSessionNotFoundException;
+import se.nackademin.stringify.exception.ConnectionLimitException;
 import se.nackademin.stringify.exception.ProfileNotFoundException;
 import se.nackademin.stringify.repository.ChatSessionRepository;
 import se.nackademin.stringify.repository.MessageRepository;
 import se.nackademin.stringify.repository.ProfileRepository;
 import se.nackademin.stringify.util.DateUtil;
+import se.nackademin.stringify.util.TimeOrderedUuid;
 
 import javax.validation.Valid;
 import java.util.Optional;
@@ -29,46 +40,82 @@ public class LiveCommunicationService implements IService {
     private final MessageRepository messageRepository;
     private final ChatSessionRepository chatSessionRepository;
     private final ProfileRepository profileRepository;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final RecentMessageCache recentMessageCache;
+    private final KeyAllocator keyAllocator;
+    private final AdmissionControl admissionControl;
+    private final NoticeOutbox noticeOutbox;
 
     /**
-     * Stores all messages received from clients.
+     * Stores all messages received from clients. With write-behind enabled the message is only stamped
+     * and buffered, and is written to the database in a later batch. Otherwise its id is generated when
+     * it is persisted.
      *
      * @param chatSessionGuid The active ChatSession Id.
      * @param message         The message sent from the client.
-     * @return {@code Message.class}
+     * @return {@code MessageDto.class} of the stored message, the same instance kept by the recent message cache
      */
-    public Message storeMessage(UUID chatSessionGuid, @Valid Message message) {
-        ChatSession chatSession = getChatSession(chatSessionGuid);
+    @Timed(value = "stringify.messages.store", description = "Time to store a message sent to a chat session")
+    public MessageDto storeMessage(UUID chatSessionGuid, @Valid Message message) {
+        ChatSession chatSession = resolveChatSession(chatSessionGuid);
 
         message.setDate(DateUtil.now());
-        message.setId(UUID.randomUUID());
-        message.setGuid(UUID.randomUUID());
+        message.setGuid(TimeOrderedUuid.generate());
         message.setChatSession(chatSession);
-        return messageRepository.save(message);
+
+        Message storedMessage;
+        if (messageWriteBehindQueue.isEnabled()) {
+            message.setId(TimeOrderedUuid.generate());
+            messageWriteBehindQueue.enqueue(message);
+            storedMessage = message;
+        } else
+            storedMessage = messageRepository.save(message);
+
+        MessageDto messageDto = storedMessage.convertToDto();
+        recentMessageCache.append(chatSessionGuid, messageDto);
+        return messageDto;
     }
 
     /**
-     * Persists connected client's profile to the database.
+     * Persists connected client's profile to the database. A new profile takes a free connection slot, which
+     * is given back if the transaction rolls back. The connection count of the session is only incremented
+     * below its capacity, which also holds the capacity when profiles connect through several instances.
+     * <br />
+     * The profile, the connection count and the notice are written in a single transaction, and the notice
+     * is published from the outbox once it has committed. The profile is added to the session registry only
+     * after the commit, so that a rollback does not leave a profile in the registry that was never stored.
      *
      * @param chatSessionGuid The active ChatSession Id.
      * @param profile         The client's profile
      * @return {@code ConnectionNotice.class}
+     * @throws ConnectionLimitException When the ChatSession has no free connection slot.
      */
+    @Timed(value = "stringify.profiles.connect", description = "Time to store a profile connecting to a chat session")
+    @Transactional
     public ConnectionNotice storeProfileConnected(UUID chatSessionGuid, @Valid Profile profile) {
-        ChatSession chatSession = getChatSession(chatSessionGuid);
+        ChatSession chatSession = resolveChatSession(chatSessionGuid);
         ProfileDto connectedProfile;
         Optional<Profile> optionalProfile = profileRepository.findByGuid(profile.getGuid());
 
         if (optionalProfile.isEmpty()) {
-            profile.setId(UUID.randomUUID());
+            if (!admissionControl.admit(chatSession))
+                throw new ConnectionLimitException("Meeting has reached the maximum number of connections.");
+            releaseSlotOnRollback(chatSessionGuid);
+            if (chatSessionRepository.incrementConnectedCount(chatSession.getId(),
+                    admissionControl.capacityOf(chatSession)) == 0)
+                throw new ConnectionLimitException("Meeting has reached the maximum number of connections.");
+
             profile.setChatSession(chatSession);
             connectedProfile = profileRepository.save(profile).convertToDto();
         } else
             connectedProfile = optionalProfile.get().convertToDto();
 
+        UUID connectedProfileGuid = connectedProfile.getGuid();
+        afterCommit(() -> activeSessionRegistry.profileConnected(chatSessionGuid, connectedProfileGuid));
+
         Message message = Message.builder()
-                .guid(UUID.randomUUID())
-                .id(UUID.randomUUID())
+                .guid(TimeOrderedUuid.generate())
                 .chatSession(chatSession)
                 .date(DateUtil.now())
                 .avatar("connect")
@@ -76,51 +123,149 @@ public class LiveCommunicationService implements IService {
                 .content(connectedProfile.getName() + " has connected to the meeting.")
                 .build();
 
-        Message messageToSend = messageRepository.save(message);
+        MessageDto messageToSend = messageRepository.save(message).convertToDto();
+        recentMessageCache.append(chatSessionGuid, messageToSend);
+
+        ConnectionNotice connectionNotice = new ConnectionNotice(connectedProfile, messageToSend);
+        noticeOutbox.append(BroadcastPublisher.CONNECT_DESTINATION + chatSessionGuid, connectionNotice);
+        return connectionNotice;
+    }
+
+    /**
+     * Gives back a slot taken by a connecting profile if the transaction storing the profile rolls back.
+     *
+     * @param chatSessionGuid The active ChatSession Id.
+     */
+    private void releaseSlotOnRollback(UUID chatSessionGuid) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
 
-        return new ConnectionNotice(connectedProfile, messageToSend.convertToDto());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK)
+                    admissionControl.release(chatSessionGuid);
+            }
+        });
     }
 
     /**
      * Deletes disconnected profiles from the database and deletes the active ChatSession
-     * if no profiles are connected.
+     * if no profiles are connected. The notice is written in the same transaction and published from the
+     * outbox once it has committed.
+     * <br />
+     * The profile is deleted and the remaining profiles are counted in a single statement. The ChatSession
+     * is resolved from the session registry when it is registered.
      *
      * @param chatSessionGuid The active ChatSession Id.
      * @param profile         The client's profile
      * @return {@code ConnectionNotice.class}
+     * @throws ProfileNotFoundException When the profile is not connected to the ChatSession.
      */
+    @Timed(value = "stringify.profiles.disconnect", description = "Time to remove a profile disconnecting from a chat session")
     @Transactional
     public ConnectionNotice removeProfileDisconnected(UUID chatSessionGuid, @Valid Profile profile) {
+        if (profile.getGuid() == null)
+            throw new ProfileNotFoundException("Could not find a profile");
 
-        Profile profileFound = profileRepository.findAllByGuidAndChatSession_Guid(profile.getGuid(), chatSessionGuid)
-                .orElseThrow(() -> new ProfileNotFoundException("Could not find a profile"));
-        ChatSession chatSession = getChatSession(chatSessionGuid);
+        ChatSession chatSession = resolveChatSession(chatSessionGuid);
+        long remaining = profileRepository.deleteAndCountRemaining(profile.getGuid().toString(),
+                chatSession.getId().toString());
+        if (remaining < 0)
+            throw new ProfileNotFoundException("Could not find a profile");
 
-        chatSession.getProfilesConnected().remove(profileFound);
-        profileRepository.deleteById(profileFound.getId());
+        releaseSlotOnCommit(chatSessionGuid, profile.getGuid());
 
-        boolean deleted = false;
-        if (chatSession.getProfilesConnected().size() == 0) {
-            deleted = true;
-            chatSessionRepository.deleteById(chatSession.getId());
+        if (remaining == 0) {
+            deleteChatSession(chatSession);
+            return null;
         }
 
-        Message message;
-        if (!deleted) {
-            message = Message.builder()
-                    .guid(UUID.randomUUID())
-                    .id(UUID.randomUUID())
-                    .chatSession(chatSession)
-                    .date(DateUtil.now())
-                    .avatar("disconnect")
-                    .sender("Notice")
-                    .content(profile.getName() + " has disconnected from the meeting.")
-                    .build();
-            message = messageRepository.save(message);
-            return new ConnectionNotice(profile.convertToDto(), message.convertToDto());
+        Message message = Message.builder()
+                .guid(TimeOrderedUuid.generate())
+                .chatSession(chatSession)
+                .date(DateUtil.now())
+                .avatar("disconnect")
+                .sender("Notice")
+                .content(profile.getName() + " has disconnected from the meeting.")
+                .build();
+        MessageDto messageToSend = messageRepository.save(message).convertToDto();
+        recentMessageCache.append(chatSessionGuid, messageToSend);
+
+        ConnectionNotice connectionNotice = new ConnectionNotice(profile.convertToDto(), messageToSend);
+        noticeOutbox.append(BroadcastPublisher.DISCONNECT_DESTINATION + chatSessionGuid, connectionNotice);
+        return connectionNotice;
+    }
+
+    /**
+     * Gives back the slot of a disconnected profile and removes it from the session registry once the
+     * transaction deleting the profile has committed, so that a rollback leaves both in line with the stored
+     * profiles.
+     *
+     * @param chatSessionGuid The active ChatSession Id.
+     * @param profileGuid     The Id of the disconnected profile.
+     */
+    private void releaseSlotOnCommit(UUID chatSessionGuid, UUID profileGuid) {
+        afterCommit(() -> {
+            activeSessionRegistry.profileDisconnected(chatSessionGuid, profileGuid);
+            admissionControl.release(chatSessionGuid);
+        });
+    }
+
+    /**
+     * Runs a change of the in-memory state once the current transaction has committed, so that the state is
+     * never ahead of the database. Without a transaction the change is run at once.
+     *
+     * @param task The change to run.
+     */
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
         }
 
-        return null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * Deletes a ChatSession with its messages and profiles in bulk statements, instead of removing the
+     * loaded collections entity by entity, and releases its in-memory state and key.
+     *
+     * @param chatSession The ChatSession to delete.
+     */
+    private void deleteChatSession(ChatSession chatSession) {
+        messageRepository.deleteAllInBulkByChatSessionId(chatSession.getId());
+        profileRepository.deleteAllInBulkByChatSessionId(chatSession.getId());
+        chatSessionRepository.deleteInBulkById(chatSession.getId());
+
+        activeSessionRegistry.evict(chatSession.getGuid());
+        admissionControl.evict(chatSession.getGuid());
+        recentMessageCache.evict(chatSession.getGuid());
+        keyAllocator.release(chatSession.getKey());
+    }
+
+    /**
+     * Resolves a ChatSession from the session registry and falls back to the database if the session
+     * is not registered. A session resolved from the registry is detached and has no profiles or messages.
+     *
+     * @param chatSessionGuid Id of an active ChatSession
+     * @return {@code ChatSession}
+     * @throws ChatSessionNotFoundException When a ChatSession cant be found in the database.
+     */
+    private ChatSession resolveChatSession(UUID chatSessionGuid) throws ChatSessionNotFoundException {
+        return activeSessionRegistry.findByGuid(chatSessionGuid)
+                .map(ActiveSession::toChatSession)
+                .orElseGet(() -> {
+                    ChatSession chatSession = getChatSession(chatSessionGuid);
+                    activeSessionRegistry.register(chatSession,
+                            profileRepository.findGuidsByChatSessionId(chatSession.getId()));
+                    return chatSession;
+                });
     }
 
     /**
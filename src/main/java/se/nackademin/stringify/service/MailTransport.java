@@ -0,0 +1,20 @@
+package se.nackademin.stringify.service;
+
+import com.sendgrid.helpers.mail.Mail;
+
+import java.io.IOException;
+
+/**
+ * Delivers a composed mail to a mail provider.
+ */
+public interface MailTransport {
+
+    /**
+     * Sends the mail.
+     *
+     * @param mail The mail with one or more personalizations.
+     * @return The HTTP status code returned by the provider.
+     * @throws IOException When the provider could not be reached or rejected the request.
+     */
+    int send(Mail mail) throws IOException;
+}
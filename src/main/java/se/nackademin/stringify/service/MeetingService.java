@@ -1,8 +1,15 @@
 package se.nackademin.stringify.service;
 
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import se.nackademin.stringify.cache.ActiveSession;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.RecentMessageCache;
 import se.nackademin.stringify.controller.response.Meeting;
 import se.nackademin.stringify.domain.ChatSession;
 import se.nackademin.stringify.domain.Profile;
@@ -25,8 +32,14 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class MeetingService implements IService {
 
+    private static final int MAX_KEY_ATTEMPTS = 3;
+
     private final ChatSessionRepository chatSessionRepository;
     private final ProfileRepository profileRepository;
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final RecentMessageCache recentMessageCache;
+    private final KeyAllocator keyAllocator;
+    private final AdmissionControl admissionControl;
 
     /**
      * Creates a new chatSession and persists it to the database together with the given profile.
@@ -36,40 +49,68 @@ public class MeetingService implements IService {
      */
     public Meeting createNewMeeting(@Valid Profile profile) {
 
-        ChatSession savedChatSession = chatSessionRepository.save(new ChatSession());
-        savedChatSession.setConnectUrl("https://stringify-chat.netlify.app/connect?chat-id=" + savedChatSession.getGuid());
-        savedChatSession.setKey(Key.generate().toString());
-        ChatSession meeting = chatSessionRepository.save(savedChatSession);
+        ChatSession chatSession = new ChatSession();
+        chatSession.setConnectUrl("https://stringify-chat.netlify.app/connect?chat-id=" + chatSession.getGuid());
+        chatSession.setConnectedCount(1);
+        ChatSession meeting = saveWithAllocatedKey(chatSession);
 
         profile.setChatSession(meeting);
         Profile connectedProfile = profileRepository.save(profile);
 
+        activeSessionRegistry.register(meeting, List.of(connectedProfile.getGuid()));
+        recentMessageCache.open(meeting.getGuid());
+
         return new Meeting(connectedProfile.convertToDto(), meeting.convertToDto());
     }
 
+    /**
+     * Saves a new chatSession with a key that is not used by any other live chatSession. Keys are unique
+     * within this instance; a key taken by another instance is detected by the unique constraint, released
+     * and replaced by a new one. The id generated by the failed insert is cleared, so that the next attempt
+     * inserts the chatSession again instead of merging it.
+     *
+     * @param chatSession The new chatSession
+     * @return the persisted chatSession
+     */
+    private ChatSession saveWithAllocatedKey(ChatSession chatSession) {
+        for (int attempt = 1; ; attempt++) {
+            String key = keyAllocator.allocate().toString();
+            chatSession.setId(null);
+            chatSession.setKey(key);
+            try {
+                return chatSessionRepository.save(chatSession);
+            } catch (DataIntegrityViolationException ex) {
+                keyAllocator.release(key);
+                if (attempt == MAX_KEY_ATTEMPTS)
+                    throw ex;
+            }
+        }
+    }
+
     /**
      * Finds and returns a ChatSession from the database if any chatSession exists with the given key.
      *
      * @param key The key identified with the chatSession.
      * @return Returns a chatSession to connect with.
      * @throws ChatSessionNotFoundException When a chat session with the given key could not be found.
-     * @throws ConnectionLimitException     When the chatSession already has too many connections. (limit: 5)
+     * @throws ConnectionLimitException     When the chatSession has no free connection slot. (default limit: 5)
      * @throws InvalidKeyException          When the key format is invalid.
      */
+    @Timed(value = "stringify.meetings.find.by.key", description = "Time to find a chat session by its key")
+    @Counted(value = "stringify.meetings.find.by.key.rejected", recordFailuresOnly = true,
+            description = "Chat session lookups by key that were rejected")
     @Transactional(readOnly = true)
     public ChatSession getChatSessionByKey(String key) {
 
         if (!Key.isValidKey(key))
             throw new InvalidKeyException();
 
-        ChatSession chatSession = chatSessionRepository.findByKey(key)
-                .orElseThrow(() -> new ChatSessionNotFoundException(
-                        String.format("No meetings with the key %s was found.", key)));
-
-        if (chatSession.getProfilesConnected().size() == 5)
-            throw new ConnectionLimitException("Meeting has reached the maximum number of connections.");
+        ActiveSession chatSession = activeSessionRegistry.findByKey(key)
+                .orElseGet(() -> register(chatSessionRepository.findByKey(key)
+                        .orElseThrow(() -> new ChatSessionNotFoundException(
+                                String.format("No meetings with the key %s was found.", key)))));
 
-        return chatSession;
+        return checkFreeSlot(chatSession.toChatSession());
     }
 
     /**
@@ -78,13 +119,25 @@ public class MeetingService implements IService {
      * @param chatId The guid identified with the chatSession.
      * @return Returns a chatSession to connect with.
      * @throws ChatSessionNotFoundException When a chat session with the given chatId could not be found.
-     * @throws ConnectionLimitException     When the chatSession already has too many connections. (limit: 5)
+     * @throws ConnectionLimitException     When the chatSession has no free connection slot. (default limit: 5)
      */
     @Transactional(readOnly = true)
     public ChatSession getMeetingByGuid(UUID chatId) throws ChatSessionNotFoundException, ConnectionLimitException {
-        ChatSession chatSession = getChatSession(chatId);
+        ActiveSession chatSession = resolveActiveSession(chatId);
 
-        if (chatSession.getProfilesConnected().size() == 5)
+        return checkFreeSlot(chatSession.toChatSession());
+    }
+
+    /**
+     * Checks that the chatSession has a free connection slot for the client that found it. The slot is only
+     * taken when the client connects, so repeated lookups do not use up the chatSession.
+     *
+     * @param chatSession The chatSession to connect with
+     * @return the given chatSession
+     * @throws ConnectionLimitException When the chatSession has no free connection slot.
+     */
+    private ChatSession checkFreeSlot(ChatSession chatSession) throws ConnectionLimitException {
+        if (!admissionControl.hasFreeSlot(chatSession))
             throw new ConnectionLimitException("Meeting has reached the maximum number of connections.");
 
         return chatSession;
@@ -98,11 +151,35 @@ public class MeetingService implements IService {
      * @return A list of profiles.
      */
     public List<Profile> getProfilesConnected(UUID chatId) {
-        ChatSession chatSession = getChatSession(chatId);
+        ActiveSession chatSession = resolveActiveSession(chatId);
 
         return profileRepository.findAllByChatSession_Id(chatSession.getId());
     }
 
+    /**
+     * Resolves an active session from the session registry and falls back to the database if the session
+     * is not registered.
+     *
+     * @param chatSessionGuid Id of an active ChatSession
+     * @return {@code ActiveSession}
+     * @throws ChatSessionNotFoundException When a ChatSession cant be found in the database.
+     */
+    private ActiveSession resolveActiveSession(UUID chatSessionGuid) throws ChatSessionNotFoundException {
+        return activeSessionRegistry.findByGuid(chatSessionGuid)
+                .orElseGet(() -> register(getChatSession(chatSessionGuid)));
+    }
+
+    /**
+     * Registers a chat session loaded from the database, reading only the guids of its connected profiles.
+     *
+     * @param chatSession The chat session loaded from the database
+     * @return {@code ActiveSession}
+     */
+    private ActiveSession register(ChatSession chatSession) {
+        return activeSessionRegistry.register(chatSession,
+                profileRepository.findGuidsByChatSessionId(chatSession.getId()));
+    }
+
     /**
      * Gets a ChatSession from the database.
      *
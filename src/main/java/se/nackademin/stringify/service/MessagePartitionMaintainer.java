@@ -0,0 +1,163 @@
+package se.nackademin.stringify.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.nackademin.stringify.configuration.MessagePartitionProperties;
+import se.nackademin.stringify.configuration.RetentionProperties;
+import se.nackademin.stringify.repository.MessageRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the daily partitions of the message table: creates the partitions for today and the configured days
+ * ahead, and drops the partitions whose messages are all older than the retention of chat sessions.
+ * A day is only dropped if every remaining chat session was created after it, so that a session the
+ * retention reaper keeps, e.g. because profiles are still connected, keeps its messages as well. Such days
+ * are left to the reaper, which deletes their messages together with their session.
+ * <br />
+ * Dropping a partition removes a whole day of messages without deleting a single row, which leaves the
+ * retention reaper with only the messages of the last days to delete. Creating and dropping a partition locks
+ * the message table, so each statement runs in its own transaction with a lock timeout and is retried on the
+ * next run if the lock could not be taken in time.
+ */
+@Slf4j
+@Component
+public class MessagePartitionMaintainer {
+
+    static final String PARTITION_PREFIX = "message_p";
+    static final String FIND_PARTITIONS = "SELECT child.relname FROM pg_inherits " +
+            "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+            "WHERE pg_inherits.inhparent = 'message'::regclass";
+    static final String SET_LOCK_TIMEOUT = "SELECT set_config('lock_timeout', ?, true)";
+    static final String FIND_OLDEST_SESSION = "SELECT min(created) FROM chatsession";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final MessagePartitionProperties properties;
+    private final RetentionProperties retentionProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public MessagePartitionMaintainer(MessagePartitionProperties properties,
+                                      RetentionProperties retentionProperties,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.retentionProperties = retentionProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the missing partitions and drops the expired ones. Runs once at startup and then at the
+     * configured interval.
+     */
+    @Scheduled(fixedDelayString = "#{@messagePartitionProperties.interval.toMillis()}")
+    public void maintain() {
+        if (!properties.isEnabled())
+            return;
+
+        Set<LocalDate> partitions;
+        try {
+            partitions = findPartitions();
+        } catch (DataAccessException ex) {
+            log.warn("Could not look up the partitions of the message table: {}", ex.getMessage());
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today; !day.isAfter(today.plusDays(properties.getDaysAhead())); day = day.plusDays(1)) {
+            if (!partitions.contains(day))
+                createPartition(day);
+        }
+
+        if (!retentionProperties.isEnabled())
+            return;
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(retentionProperties.getMaxAge());
+        LocalDateTime oldestSessionMessage;
+        try {
+            oldestSessionMessage = findOldestSessionMessage();
+        } catch (DataAccessException ex) {
+            log.warn("Could not look up the oldest chat session: {}", ex.getMessage());
+            return;
+        }
+
+        for (LocalDate day : partitions) {
+            LocalDateTime end = day.plusDays(1).atStartOfDay();
+            if (end.isAfter(cutoff))
+                break;
+            if (oldestSessionMessage != null && end.isAfter(oldestSessionMessage))
+                break;
+
+            dropPartition(day);
+        }
+    }
+
+    /**
+     * @return The earliest date a message of any remaining chat session can have, or {@code null} if there
+     * are no chat sessions.
+     */
+    private LocalDateTime findOldestSessionMessage() {
+        Timestamp oldest = jdbcTemplate.queryForObject(FIND_OLDEST_SESSION, Timestamp.class);
+        if (oldest == null)
+            return null;
+
+        return MessageRepository.earliestMessageDate(oldest).toLocalDateTime();
+    }
+
+    /**
+     * @return The days of the existing partitions, oldest first.
+     */
+    Set<LocalDate> findPartitions() {
+        Set<LocalDate> days = new TreeSet<>();
+        for (String name : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)) {
+            if (!name.startsWith(PARTITION_PREFIX))
+                continue;
+
+            try {
+                days.add(LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException ex) {
+                log.debug("Ignoring partition {} of the message table", name);
+            }
+        }
+        return days;
+    }
+
+    void createPartition(LocalDate day) {
+        execute(String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF message FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(day), day, day.plusDays(1)));
+    }
+
+    void dropPartition(LocalDate day) {
+        execute("DROP TABLE IF EXISTS " + partitionName(day));
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    private void execute(String statement) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject(SET_LOCK_TIMEOUT, String.class,
+                        properties.getLockTimeout().toMillis() + "ms");
+                jdbcTemplate.execute(statement);
+            });
+            log.info("{}", statement);
+        } catch (DataAccessException ex) {
+            log.warn("Could not run \"{}\", retrying next run: {}", statement, ex.getMessage());
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package se.nackademin.stringify.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.RecentMessageCache;
 import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.exception.ChatSessionNotFoundException;
 import se.nackademin.stringify.repository.ChatSessionRepository;
 import se.nackademin.stringify.repository.MessageRepository;
+import se.nackademin.stringify.util.MessageCursor;
+import se.nackademin.stringify.util.TranscriptWriter;
 
-import java.util.Comparator;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -24,30 +36,175 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MessageService {
 
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ChatSessionRepository chatSessionRepository;
     private final MessageRepository messageRepository;
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final RecentMessageCache recentMessageCache;
+    private final EntityManager entityManager;
+
+    /**
+     * Fetches a page of 10 messages, sorted by ascending dates. The newest pages are served from the
+     * recent message cache and only older pages are read from the database with {@code getMessage()}.
+     *
+     * @param chatGuid the {@code UUID} chat guid in relation with the messages
+     * @param page     The of page number of a list of messages
+     * @return A list of messages ({@code List<MessageDto>}) with a size of 10
+     * @throws ChatSessionNotFoundException When a chat session with the given chat guid could not be found.
+     */
+    @Timed(value = "stringify.messages.history", extraTags = {"mode", "page"},
+            description = "Time to read a page of the message history")
+    @Transactional(readOnly = true)
+    public List<MessageDto> getHistoryPage(UUID chatGuid, int page) throws ChatSessionNotFoundException {
+        return recentMessageCache.page(chatGuid, page, DEFAULT_PAGE_SIZE, () -> loadNewest(chatGuid))
+                .orElseGet(() -> toDto(getMessage(chatGuid, page)));
+    }
 
     /**
      * Fetches a list of maximum 10 message objects from the database with use of Pagination.
      * The list is sorted by ascending dates.
+     * <br />
+     * Kept for compatibility, every page skips all newer messages with an OFFSET.
+     * Prefer {@code getMessagesBefore()} which does not slow down on deep pages.
      *
      * @param chatGuid the {@code UUID} chat guid in relation with the messages
      * @param page     The of page number of a list of messages
      * @return A list of messages ({@code List<Message>}) with a size of 10
      */
+    @Timed(value = "stringify.messages.history", extraTags = {"mode", "offset"},
+            description = "Time to read a page of the message history")
     @Transactional(readOnly = true)
     public List<Message> getMessage(UUID chatGuid, int page) throws ChatSessionNotFoundException {
-        final int AMOUNT_OF_ELEMENTS = 10;
+        MessageScope scope = resolveMessageScope(chatGuid);
+        Pageable sortedByDate =
+                PageRequest.of(page, DEFAULT_PAGE_SIZE, Sort.by(Sort.Order.desc("date"), Sort.Order.desc("guid")));
 
-        if (!chatSessionRepository.existsByGuid(chatGuid))
-            throw new ChatSessionNotFoundException(String.format("No meetings with the id %s was found.", chatGuid));
+        return ascending(messageRepository.findAllByChatSession_IdAndDateGreaterThanEqual(
+                scope.chatSessionId, scope.since, sortedByDate));
+    }
 
-        Pageable sortedByDate =
-                PageRequest.of(page, AMOUNT_OF_ELEMENTS, Sort.by("date").descending());
+    /**
+     * Fetches the messages older than the given cursor, or the newest messages if no cursor is given.
+     * The list is sorted by ascending dates.
+     *
+     * @param chatGuid the {@code UUID} chat guid in relation with the messages
+     * @param cursor   The position to read the history before, {@code null} for the newest messages
+     * @param size     The maximum number of messages, bounded by {@code MAX_PAGE_SIZE}
+     * @return A list of messages ({@code List<Message>})
+     * @throws ChatSessionNotFoundException When a chat session with the given chat guid could not be found.
+     */
+    @Timed(value = "stringify.messages.history", extraTags = {"mode", "keyset"},
+            description = "Time to read a page of the message history")
+    @Transactional(readOnly = true)
+    public List<Message> getMessagesBefore(UUID chatGuid, MessageCursor cursor, int size)
+            throws ChatSessionNotFoundException {
+        MessageScope scope = resolveMessageScope(chatGuid);
+        Pageable limit = PageRequest.of(0, pageSize(size));
+
+        List<Message> newestFirst = cursor == null
+                ? findNewest(scope, limit)
+                : messageRepository.findAllBefore(scope.chatSessionId, scope.since, cursor.getDate(),
+                cursor.getGuid(), limit);
+
+        return ascending(newestFirst);
+    }
+
+    /**
+     * Finds the id of a chat session, e.g. to check that it exists before its transcript is exported.
+     *
+     * @param chatGuid the {@code UUID} chat guid of the chat session
+     * @return the id of the chat session
+     * @throws ChatSessionNotFoundException When a chat session with the given chat guid could not be found.
+     */
+    @Transactional(readOnly = true)
+    public UUID getChatSessionId(UUID chatGuid) throws ChatSessionNotFoundException {
+        return resolveMessageScope(chatGuid).chatSessionId;
+    }
 
-        return messageRepository.findAllByChatSession_Guid(chatGuid, sortedByDate).stream()
-                .sorted(Comparator.comparing(Message::getDate))
+    /**
+     * Writes every message of a chat session to the given writer, oldest first. The messages are read
+     * through a database cursor and detached once written, so memory use does not grow with the length of
+     * the transcript.
+     *
+     * @param chatSessionId The id of the chat session
+     * @param writer        The writer of the transcript
+     * @return the number of messages written
+     * @throws IOException when a message could not be written
+     */
+    @Timed(value = "stringify.messages.export", description = "Time to export the transcript of a chat session")
+    @Transactional(readOnly = true)
+    public long exportTranscript(UUID chatSessionId, TranscriptWriter writer) throws IOException {
+        long written = 0;
+        Timestamp since = MessageRepository.earliestMessageDate(
+                chatSessionRepository.findCreatedById(chatSessionId).orElse(null));
+        try (Stream<Message> messages = messageRepository.streamAllByChatSessionId(chatSessionId, since)) {
+            Iterator<Message> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                Message message = iterator.next();
+                writer.write(message.convertToDto());
+                entityManager.detach(message);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Bounds a requested page size to {@code 1..MAX_PAGE_SIZE}.
+     */
+    public static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Resolves the id and creation date of a chat session from the session registry and falls back to the
+     * database if the session is not registered.
+     */
+    private MessageScope resolveMessageScope(UUID chatGuid) throws ChatSessionNotFoundException {
+        return activeSessionRegistry.findByGuid(chatGuid)
+                .map(session -> new MessageScope(session.getId(), session.getCreated()))
+                .orElseGet(() -> chatSessionRepository.findByGuid(chatGuid)
+                        .map(chatSession -> new MessageScope(chatSession.getId(), chatSession.getCreated()))
+                        .orElseThrow(() -> new ChatSessionNotFoundException(
+                                String.format("No meetings with the id %s was found.", chatGuid))));
+    }
+
+    private List<Message> findNewest(MessageScope scope, Pageable limit) {
+        return messageRepository.findAllByChatSession_IdAndDateGreaterThanEqualOrderByDateDescGuidDesc(
+                scope.chatSessionId, scope.since, limit);
+    }
+
+    private List<MessageDto> loadNewest(UUID chatGuid) {
+        Pageable limit = PageRequest.of(0, recentMessageCache.getCapacity());
+
+        return toDto(ascending(findNewest(resolveMessageScope(chatGuid), limit)));
+    }
+
+    private static List<MessageDto> toDto(List<Message> messages) {
+        return messages.stream()
+                .map(Message::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    private static List<Message> ascending(List<Message> newestFirst) {
+        List<Message> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * A chat session and the earliest date its messages can have.
+     */
+    private static final class MessageScope {
+
+        private final UUID chatSessionId;
+        private final Timestamp since;
+
+        private MessageScope(UUID chatSessionId, Timestamp created) {
+            this.chatSessionId = chatSessionId;
+            this.since = MessageRepository.earliestMessageDate(created);
+        }
+    }
 }
@@ -0,0 +1,189 @@
+package se.nackademin.stringify.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.nackademin.stringify.configuration.WriteBehindProperties;
+import se.nackademin.stringify.domain.Message;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded buffer of stamped messages that are written to the message table in JDBC batches.
+ * <br />
+ * A batch is flushed as soon as it reaches the configured batch size or when the flush interval has passed.
+ * When the buffer is full the sender waits for free space and finally writes the message itself, which
+ * slows senders down to the pace of the database instead of dropping messages.
+ */
+@Slf4j
+@Component
+public class MessageWriteBehindQueue {
+
+    static final String INSERT_MESSAGE = "INSERT INTO message (id, guid, sender, content, avatar, date, chat_session_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final WriteBehindProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Message> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriteBehindQueue(WriteBehindProperties properties,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+    }
+
+    /**
+     * Starts the flushing thread if write-behind is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled())
+            return;
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "message-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops accepting new batches and drains every buffered message to the database.
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher == null)
+            return;
+
+        running = false;
+        try {
+            flusher.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!queue.isEmpty()) {
+            log.warn("Write-behind flusher did not finish in time, writing {} messages on shutdown", queue.size());
+            drainRemaining();
+        }
+    }
+
+    /**
+     * @return {@code true} if messages should be handed to this queue instead of being saved directly.
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return The amount of messages waiting to be written.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Buffers a stamped message for a later batch write. The message must have its id, guid, date and
+     * chat session set.
+     *
+     * @param message The message to persist.
+     */
+    public void enqueue(Message message) {
+        try {
+            if (running && queue.offer(message, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.warn("Write-behind buffer is full, writing message {} synchronously", message.getGuid());
+        writeBatch(List.of(message));
+    }
+
+    private void flushLoop() {
+        final long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        final int batchSize = properties.getBatchSize();
+
+        while (running || !queue.isEmpty()) {
+            List<Message> batch = new ArrayList<>(batchSize);
+            long deadline = System.nanoTime() + flushIntervalNanos;
+
+            try {
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        break;
+
+                    Message message = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (message == null)
+                        break;
+
+                    batch.add(message);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty())
+                writeBatch(batch);
+        }
+    }
+
+    private void drainRemaining() {
+        List<Message> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the batch in a single transaction. If the batch fails, every message is retried on its own so
+     * that a single bad row, e.g. a message to a meeting that was deleted meanwhile, does not lose the rest.
+     */
+    void writeBatch(List<Message> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_MESSAGE, batch, batch.size(), MessageWriteBehindQueue::setValues));
+        } catch (DataAccessException ex) {
+            if (batch.size() == 1) {
+                log.warn("Could not persist message {}: {}", batch.get(0).getGuid(), ex.getMessage());
+                return;
+            }
+
+            log.warn("Batch of {} messages failed, retrying one by one: {}", batch.size(), ex.getMessage());
+            for (Message message : batch) {
+                writeBatch(List.of(message));
+            }
+        }
+    }
+
+    private static void setValues(PreparedStatement ps, Message message) throws SQLException {
+        ps.setObject(1, message.getId());
+        ps.setObject(2, message.getGuid());
+        ps.setString(3, message.getSender());
+        ps.setString(4, message.getContent());
+        ps.setString(5, message.getAvatar());
+        ps.setTimestamp(6, message.getDate());
+        ps.setObject(7, message.getChatSession().getId());
+    }
+}
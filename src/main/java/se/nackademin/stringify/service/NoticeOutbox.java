@@ -0,0 +1,201 @@
+package se.nackademin.stringify.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.nackademin.stringify.configuration.OutboxProperties;
+import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.controller.websocket.BroadcastPublisher;
+import se.nackademin.stringify.domain.OutboxNotice;
+import se.nackademin.stringify.repository.OutboxNoticeRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A transactional outbox of the connection notices of a chat session.
+ * <br />
+ * A notice is inserted in the transaction that stores the profile change, so that both are committed
+ * together or not at all. Once the transaction has committed, the notice is handed to a background thread
+ * that publishes it to the subscribers and deletes it from the outbox in batches. Notices that were not
+ * published, e.g. because the application stopped in between, are picked up by a periodic sweep.
+ * <br />
+ * A notice is deleted only after it has been published, so it may be published twice but is never lost.
+ * Clients can recognize a repeated notice by the guid of its message.
+ */
+@Slf4j
+@Component
+public class NoticeOutbox {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final OutboxProperties properties;
+    private final OutboxNoticeRepository outboxNoticeRepository;
+    private final BroadcastPublisher broadcastPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<OutboxNotice> committed;
+
+    private volatile boolean running;
+    private Thread relay;
+
+    public NoticeOutbox(OutboxProperties properties,
+                        OutboxNoticeRepository outboxNoticeRepository,
+                        BroadcastPublisher broadcastPublisher,
+                        PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.outboxNoticeRepository = outboxNoticeRepository;
+        this.broadcastPublisher = broadcastPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.committed = new ArrayBlockingQueue<>(properties.getCapacity());
+    }
+
+    /**
+     * Starts the relaying thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        relay = new Thread(this::relayLoop, "notice-outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    /**
+     * Stops the relaying thread after it has published the committed notices.
+     */
+    @PreDestroy
+    public void stop() {
+        if (relay == null)
+            return;
+
+        running = false;
+        try {
+            relay.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The amount of committed notices waiting to be published.
+     */
+    public int size() {
+        return committed.size();
+    }
+
+    /**
+     * Stores a notice in the outbox within the current transaction. The notice is published after the
+     * transaction has committed, and discarded if it rolls back.
+     *
+     * @param destination The destination the notice is published to.
+     * @param notice      The connection notice.
+     */
+    public void append(String destination, ConnectionNotice notice) {
+        OutboxNotice outboxNotice = outboxNoticeRepository.save(OutboxNotice.builder()
+                .destination(destination)
+                .payload(broadcastPublisher.encode(notice))
+                .created(new Timestamp(System.currentTimeMillis()))
+                .build());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            relayCommitted(outboxNotice);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relayCommitted(outboxNotice);
+            }
+        });
+    }
+
+    /**
+     * Publishes the notices that have stayed in the outbox longer than the configured age.
+     */
+    @Scheduled(fixedDelayString = "#{@outboxProperties.sweepInterval.toMillis()}")
+    public void sweep() {
+        Timestamp staleBefore = new Timestamp(System.currentTimeMillis() - properties.getStaleAfter().toMillis());
+        int batchSize = properties.getBatchSize();
+        List<OutboxNotice> stale;
+        do {
+            stale = outboxNoticeRepository.findByCreatedBeforeOrderByIdAsc(staleBefore, PageRequest.of(0, batchSize));
+            if (stale.isEmpty())
+                return;
+
+            log.info("Publishing {} notices left in the outbox", stale.size());
+        } while (publish(stale) == batchSize);
+    }
+
+    private void relayCommitted(OutboxNotice outboxNotice) {
+        if (!committed.offer(outboxNotice))
+            log.warn("Outbox relay is full, notice {} is left for the sweep", outboxNotice.getId());
+    }
+
+    private void relayLoop() {
+        final int batchSize = properties.getBatchSize();
+
+        while (running || !committed.isEmpty()) {
+            List<OutboxNotice> batch = new ArrayList<>(batchSize);
+            try {
+                OutboxNotice outboxNotice = committed.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (outboxNotice == null)
+                    continue;
+
+                batch.add(outboxNotice);
+                committed.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                committed.drainTo(batch, batchSize);
+            }
+
+            if (!batch.isEmpty())
+                publish(batch);
+        }
+    }
+
+    /**
+     * Publishes the notices and deletes the published ones from the outbox in a single statement. A
+     * notice that could not be published is kept for the sweep.
+     *
+     * @return The amount of notices that were published and deleted.
+     */
+    int publish(List<OutboxNotice> batch) {
+        List<UUID> published = new ArrayList<>(batch.size());
+        for (OutboxNotice outboxNotice : batch) {
+            try {
+                broadcastPublisher.publish(outboxNotice.getDestination(), outboxNotice.getPayload());
+                published.add(outboxNotice.getId());
+            } catch (MessagingException ex) {
+                log.warn("Could not publish notice {} to {}: {}", outboxNotice.getId(),
+                        outboxNotice.getDestination(), ex.getMessage());
+            }
+        }
+
+        if (published.isEmpty())
+            return 0;
+
+        try {
+            Integer deleted = transactionTemplate.execute(status -> outboxNoticeRepository.deleteByIds(published));
+            return deleted == null ? 0 : deleted;
+        } catch (DataAccessException ex) {
+            log.warn("Could not delete {} published notices from the outbox: {}", published.size(), ex.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package se.nackademin.stringify.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.configuration.RetentionProperties;
+import se.nackademin.stringify.repository.MessageRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes the chat sessions that are older than the configured maximum age, together with their messages
+ * and profiles.
+ * <br />
+ * Messages are deleted in chunks of at most the configured size, each in its own short transaction, so that
+ * no statement holds its locks for long or writes a large amount of WAL at once. Between the chunks the
+ * reaper pauses to stay within the configured rows per second. Chat sessions that still have profiles, on
+ * any instance, or that are registered on this instance are left for a later run. The session row is only
+ * deleted if no profile has joined meanwhile. The reaper runs on its own thread, so that the pauses do not hold up a thread of
+ * the scheduler shared with the message broker.
+ * <br />
+ * Whole days of expired messages are dropped with their partition by {@code MessagePartitionMaintainer},
+ * which leaves the reaper with the messages of the last days of a session. The chunks are bounded by the
+ * creation of the session, so that they only look at the partitions it can have messages in.
+ */
+@Slf4j
+@Component
+public class RetentionReaper {
+
+    static final String FIND_EXPIRED_SESSIONS = "SELECT id, guid, key, created FROM chatsession " +
+            "WHERE created < ? AND NOT EXISTS (SELECT 1 FROM profile WHERE profile.chat_session_id = chatsession.id) " +
+            "ORDER BY created LIMIT ?";
+    static final String DELETE_MESSAGE_CHUNK = "DELETE FROM message WHERE id IN " +
+            "(SELECT id FROM message WHERE chat_session_id = ? AND date >= ? LIMIT ?)";
+    static final String DELETE_SESSION = "DELETE FROM chatsession WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM profile WHERE profile.chat_session_id = ?)";
+
+    private final RetentionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ActiveSessionRegistry activeSessionRegistry;
+    private final AdmissionControl admissionControl;
+    private final RecentMessageCache recentMessageCache;
+    private final KeyAllocator keyAllocator;
+    private final LongAdder deletedSessions = new LongAdder();
+    private final LongAdder deletedMessages = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+
+    private volatile boolean stopped;
+    private ScheduledExecutorService executor;
+
+    public RetentionReaper(RetentionProperties properties,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ActiveSessionRegistry activeSessionRegistry,
+                           AdmissionControl admissionControl,
+                           RecentMessageCache recentMessageCache,
+                           KeyAllocator keyAllocator) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.activeSessionRegistry = activeSessionRegistry;
+        this.admissionControl = admissionControl;
+        this.recentMessageCache = recentMessageCache;
+        this.keyAllocator = keyAllocator;
+    }
+
+    /**
+     * Starts the reaper thread if retention is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled())
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::reapExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the reaper after the running chunk.
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor == null)
+            return;
+
+        stopped = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes the expired chat sessions, at most the configured amount per run.
+     */
+    void reapExpired() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(properties.getMaxAge()));
+        List<ExpiredSession> expired;
+        try {
+            expired = jdbcTemplate.query(FIND_EXPIRED_SESSIONS, (rs, rowNum) -> new ExpiredSession(
+                    rs.getObject("id", UUID.class),
+                    rs.getObject("guid", UUID.class),
+                    rs.getString("key"),
+                    MessageRepository.earliestMessageDate(rs.getTimestamp("created"))),
+                    cutoff, properties.getSessionsPerRun());
+        } catch (DataAccessException ex) {
+            log.warn("Could not look up expired chat sessions: {}", ex.getMessage());
+            return;
+        }
+
+        for (ExpiredSession session : expired) {
+            if (stopped)
+                return;
+            if (activeSessionRegistry.isRegistered(session.guid))
+                continue;
+
+            reap(session);
+        }
+    }
+
+    /**
+     * @return The amount of chat sessions deleted since start.
+     */
+    public long getDeletedSessions() {
+        return deletedSessions.sum();
+    }
+
+    /**
+     * @return The amount of messages deleted since start.
+     */
+    public long getDeletedMessages() {
+        return deletedMessages.sum();
+    }
+
+    /**
+     * @return The amount of message chunks deleted since start.
+     */
+    public long getChunks() {
+        return chunks.sum();
+    }
+
+    /**
+     * Deletes the messages of a chat session chunk by chunk and then the session itself. A session that fails
+     * or is interrupted by shutdown keeps its remaining rows and is picked up again by the next run.
+     */
+    private void reap(ExpiredSession session) {
+        Integer deletedSession;
+        try {
+            int deleted;
+            do {
+                if (stopped)
+                    return;
+
+                long start = System.nanoTime();
+                deleted = deleteMessageChunk(session);
+                deletedMessages.add(deleted);
+                throttle(deleted, System.nanoTime() - start);
+            } while (deleted == properties.getChunkSize());
+
+            deletedSession = transactionTemplate.execute(status ->
+                    jdbcTemplate.update(DELETE_SESSION, session.id, session.id));
+        } catch (DataAccessException ex) {
+            log.warn("Could not delete expired chat session {}, retrying next run: {}", session.guid, ex.getMessage());
+            return;
+        }
+
+        if (deletedSession == null || deletedSession == 0) {
+            log.debug("A profile joined expired chat session {} while it was deleted, keeping it", session.guid);
+            return;
+        }
+
+        deletedSessions.increment();
+        activeSessionRegistry.evict(session.guid);
+        admissionControl.evict(session.guid);
+        recentMessageCache.evict(session.guid);
+        keyAllocator.release(session.key);
+        log.debug("Deleted expired chat session {}", session.guid);
+    }
+
+    private int deleteMessageChunk(ExpiredSession session) {
+        Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(DELETE_MESSAGE_CHUNK,
+                session.id, session.earliestMessageDate, properties.getChunkSize()));
+        chunks.increment();
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Pauses for the time the deleted rows are worth at the configured rows per second, less the time the
+     * delete already took.
+     */
+    private void throttle(int deleted, long elapsedNanos) {
+        if (properties.getMaxRowsPerSecond() <= 0 || deleted == 0)
+            return;
+
+        long budgetNanos = TimeUnit.SECONDS.toNanos(deleted) / properties.getMaxRowsPerSecond();
+        long pauseNanos = budgetNanos - elapsedNanos;
+        if (pauseNanos <= 0)
+            return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(pauseNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+
+    static class ExpiredSession {
+
+        private final UUID id;
+        private final UUID guid;
+        private final String key;
+        private final Timestamp earliestMessageDate;
+
+        ExpiredSession(UUID id, UUID guid, String key, Timestamp earliestMessageDate) {
+            this.id = id;
+            this.guid = guid;
+            this.key = key;
+            this.earliestMessageDate = earliestMessageDate;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package se.nackademin.stringify.service;
+
+import com.sendgrid.Method;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import com.sendgrid.helpers.mail.Mail;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import se.nackademin.stringify.configuration.InvitationProperties;
+
+import java.io.IOException;
+
+/**
+ * Sends mails through the SendGrid API.
+ */
+@Slf4j
+@Component
+public class SendGridMailTransport implements MailTransport {
+
+    private final SendGrid sendGrid;
+
+    public SendGridMailTransport(InvitationProperties properties) {
+        this.sendGrid = new SendGrid(properties.getApiKey());
+    }
+
+    @Override
+    public int send(Mail mail) throws IOException {
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        request.setBody(mail.build());
+
+        Response response = sendGrid.api(request);
+        log.debug("SendGrid responded {}: {}", response.getStatusCode(), response.getBody());
+        return response.getStatusCode();
+    }
+}
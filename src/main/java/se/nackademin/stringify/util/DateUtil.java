@@ -3,7 +3,11 @@ package se.nackademin.stringify.util;
 import lombok.experimental.UtilityClass;
 
 import java.sql.Timestamp;
-import java.util.Date;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
 
 
 /**
@@ -11,10 +15,29 @@ import java.util.Date;
  * <br />
  * <br />
  * Data type of date is a {@code java.sql.Timestamp} for the purpose of simplifying Entities persisting to database.
+ * <br />
+ * <br />
+ * Formatted strings are cached per minute, since every message sent within the same minute shares its date
+ * string. The cache assumes that the default time zone does not change while the application is running.
  */
 @UtilityClass
 public class DateUtil {
 
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final int CACHE_SIZE = 64;
+    /**
+     * Years formatted with {@code java.time}. Outside this range {@code Timestamp.toString()} is used, since
+     * it follows the Julian calendar before the Gregorian cutover and local mean time in old time zones.
+     */
+    private static final int MIN_CACHED_YEAR = 1900;
+    private static final int MAX_CACHED_YEAR = 9999;
+
+    /**
+     * Recently formatted minutes, indexed by epoch minute. Entries are immutable, so a racing write only
+     * costs a second formatting of the same minute.
+     */
+    private static final FormattedMinute[] CACHE = new FormattedMinute[CACHE_SIZE];
+
     /**
      * Converts a {@code java.sql.Timestamp} object to a string date with the pattern of <li>yyyy-MM-dd HH:mm</li>
      *
@@ -26,9 +49,9 @@ public class DateUtil {
         if (date == null)
             throw new IllegalArgumentException("Cannot convert null to String");
 
-        String stringDate = date.toString();
+        String cached = format(date.getTime());
 
-        return stringDate.substring(0, stringDate.lastIndexOf(":"));
+        return cached != null ? cached : legacyDateToString(date);
     }
 
     /**
@@ -38,7 +61,10 @@ public class DateUtil {
      * @return the string value of the current date-time.
      */
     public static String stringValueOfNow() {
-        return dateToString(new Timestamp(new Date().getTime()));
+        long now = System.currentTimeMillis();
+        String cached = format(now);
+
+        return cached != null ? cached : legacyDateToString(new Timestamp(now));
     }
 
     /**
@@ -47,6 +73,92 @@ public class DateUtil {
      * @return {@code Timestamp.class}
      */
     public static Timestamp now() {
-        return new Timestamp(new Date().getTime());
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    /**
+     * Empties the cache of formatted minutes, e.g. after the default time zone has been changed.
+     */
+    static void clearCache() {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = null;
+        }
+    }
+
+    /**
+     * Looks up the formatted minute of the given instant and formats it on a miss.
+     *
+     * @return the formatted date, or {@code null} if the minute must be formatted by {@code Timestamp.toString()}
+     */
+    private static String format(long epochMilli) {
+        long epochMinute = Math.floorDiv(epochMilli, MILLIS_PER_MINUTE);
+        int index = (int) (epochMinute & (CACHE_SIZE - 1));
+
+        FormattedMinute entry = CACHE[index];
+        if (entry != null && entry.epochMinute == epochMinute)
+            return entry.value;
+
+        String value = formatMinute(epochMinute);
+        if (value != null)
+            CACHE[index] = new FormattedMinute(epochMinute, value);
+        return value;
+    }
+
+    /**
+     * Formats a minute with {@code java.time}, if every instant of it has the same local minute.
+     *
+     * @return the formatted date, or {@code null} if the minute must be formatted by {@code Timestamp.toString()}
+     */
+    private static String formatMinute(long epochMinute) {
+        ZoneRules rules = ZoneId.systemDefault().getRules();
+        long epochSecond = epochMinute * 60;
+        ZoneOffset offset = rules.getOffset(Instant.ofEpochSecond(epochSecond));
+
+        if (offset.getTotalSeconds() % 60 != 0 || !offset.equals(rules.getOffset(Instant.ofEpochSecond(epochSecond + 59))))
+            return null;
+
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, offset);
+        int year = dateTime.getYear();
+        if (year < MIN_CACHED_YEAR || year > MAX_CACHED_YEAR)
+            return null;
+
+        char[] buffer = {'0', '0', '0', '0', '-', '0', '0', '-', '0', '0', ' ', '0', '0', ':', '0', '0'};
+        writeDigits(buffer, 0, 4, year);
+        writeDigits(buffer, 5, 2, dateTime.getMonthValue());
+        writeDigits(buffer, 8, 2, dateTime.getDayOfMonth());
+        writeDigits(buffer, 11, 2, dateTime.getHour());
+        writeDigits(buffer, 14, 2, dateTime.getMinute());
+        return new String(buffer);
+    }
+
+    private static void writeDigits(char[] buffer, int offset, int length, int value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * The formatting used before the cache, kept for the dates outside of {@code MIN_CACHED_YEAR} and
+     * {@code MAX_CACHED_YEAR} and for minutes without a single local minute.
+     */
+    private static String legacyDateToString(Timestamp date) {
+        String stringDate = date.toString();
+
+        return stringDate.substring(0, stringDate.lastIndexOf(":"));
+    }
+
+    /**
+     * A minute since the epoch together with its formatted local date.
+     */
+    private static final class FormattedMinute {
+
+        private final long epochMinute;
+        private final String value;
+
+        private FormattedMinute(long epochMinute, String value) {
+            this.epochMinute = epochMinute;
+            this.value = value;
+        }
     }
 }
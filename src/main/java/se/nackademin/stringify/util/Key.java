@@ -1,12 +1,7 @@
 package se.nackademin.stringify.util;
 
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 /**
@@ -17,7 +12,8 @@ import java.util.stream.Collectors;
  *     <li>The <strong>{@code fromString()}</strong> method creates a Key object with the given value, expected that the value is valid.</li>
  * </ul>
  *
- * <em><u>WARNING:</u></em> A generated Key could potentially create a duplicate key, even though chances are very slim.
+ * <em><u>NOTE:</u></em> A generated Key is random and not unique by itself. Use {@code KeyAllocator} to obtain a key
+ * that is not in use by any live chat session.
  */
 public class Key {
 
@@ -25,10 +21,34 @@ public class Key {
      * A sorted sequence of characters for an alphanumeric String
      */
     private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZ" + "01234567";
+    private static final char[] ALPHABET = ALPHANUMERIC.toCharArray();
     /**
      * The length of the generated key
      */
     private static final int KEY_LENGTH = 6;
+    /**
+     * Special characters that are not allowed in a key
+     */
+    private static final String FORBIDDEN_CHARACTERS = "-,.&/():;_*+><=!?#£$%½{}`´ ";
+    /**
+     * Lookup table of the Latin-1 characters that make a key invalid: lowercase letters, line terminators
+     * and the forbidden characters. The only rejected characters above Latin-1 are the line and paragraph
+     * separators.
+     */
+    private static final boolean[] REJECTED_LATIN_1 = new boolean[256];
+
+    static {
+        for (char character = 'a'; character <= 'z'; character++) {
+            REJECTED_LATIN_1[character] = true;
+        }
+        for (char character : FORBIDDEN_CHARACTERS.toCharArray()) {
+            REJECTED_LATIN_1[character] = true;
+        }
+        REJECTED_LATIN_1['\n'] = true;
+        REJECTED_LATIN_1['\r'] = true;
+        REJECTED_LATIN_1['\u0085'] = true;
+    }
+
     private final String value;
 
     public Key(String value) {
@@ -37,76 +57,76 @@ public class Key {
 
 
     /**
-     * Generates a randomized alphanumeric key. The given alphanumeric list is at all times shuffled before use,
-     * decreasing the chance of generating a duplicate key.
+     * Generates a randomized alphanumeric key with at least one digit and at least one letter.
+     * Characters are drawn uniformly from the alphabet with the thread's own random generator, and a draw
+     * lacking a digit or a letter is discarded, so that every valid key is equally likely.
      *
      * @return a generated alphanumeric key with length of 6
      */
     public static Key generate() {
-        List<String> alphaNum = alphaNumericToList();
-        StringBuilder key = new StringBuilder(KEY_LENGTH);
-
-        for (int i = 0; i < KEY_LENGTH; i++) {
-            int index = new Random().nextInt(alphaNum.size());
-
-            if (i == KEY_LENGTH - 1) {
-                if (!containsADigit(key.toString())) {
-                    key.append(new Random().nextInt(9));
-                    return new Key(key.toString());
-                }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] key = new char[KEY_LENGTH];
+        boolean containsDigit;
+        boolean containsLetter;
+
+        do {
+            containsDigit = false;
+            containsLetter = false;
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                char character = ALPHABET[random.nextInt(ALPHABET.length)];
+                key[i] = character;
+                if (character < 'A')
+                    containsDigit = true;
+                else
+                    containsLetter = true;
             }
-            key.append(alphaNum.get(index));
-        }
+        } while (!containsDigit || !containsLetter);
 
-        return new Key(key.toString());
+        return new Key(new String(key));
     }
 
     /**
-     * Converts the alphanumeric String to a list. For each instance of use it shuffles the list before use.
+     * Checks if the given value is valid. A valid value has a length of 6, contains at least one digit and one
+     * uppercase letter, and contains no lowercase letters, no line terminators and none of the characters
+     * in {@code FORBIDDEN_CHARACTERS}. Any other character is accepted.
+     * <br />
+     * The value is checked in a single pass without regular expressions or allocations.
      *
-     * @return a shuffled alphanumeric list
-     */
-    private static List<String> alphaNumericToList() {
-        List<String> sortedAlphaNum = ALPHANUMERIC.chars()
-                .mapToObj(Character::toString)
-                .collect(Collectors.toList());
-        Collections.shuffle(sortedAlphaNum);
-
-        return sortedAlphaNum;
-    }
-
-    /**
-     * controls if the given string value contains any digit
-     *
-     * @param value String to be controlled
-     * @return {@code true} if the string contains a digit; {@code false}
+     * @param value The value to be controlled
+     * @return {@code true} if the String is a valid key; {@code false}
      * otherwise
      */
-    private static boolean containsADigit(String value) {
-        char[] characters = value.toCharArray();
+    public static boolean isValidKey(String value) {
+        if (value.length() != KEY_LENGTH)
+            return false;
+
         boolean containsDigit = false;
-        for (char character : characters) {
-            if (Character.isDigit(character))
+        boolean containsUppercase = false;
+
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            char character = value.charAt(i);
+
+            if (character >= '0' && character <= '9')
                 containsDigit = true;
+            else if (character >= 'A' && character <= 'Z')
+                containsUppercase = true;
+            else if (isRejected(character))
+                return false;
         }
-        return containsDigit;
+
+        return containsDigit && containsUppercase;
     }
 
     /**
-     * Checks if the given value is valid. The result is {@code true} if the argument matches the regex
-     * pattern; {@code false} otherwise
+     * Checks a character that is neither a digit nor an uppercase letter.
      *
-     * @param value The value to be controlled
-     * @return {@code true} if the String matches the regex pattern; {@code false}
-     * otherwise
+     * @return {@code true} if the character makes a key invalid; {@code false} otherwise
      */
-    public static boolean isValidKey(String value) {
-        if (value.length() != 6)
-            return false;
+    private static boolean isRejected(char character) {
+        if (character < REJECTED_LATIN_1.length)
+            return REJECTED_LATIN_1[character];
 
-        Pattern pattern = Pattern.compile("^(?=.*\\d)(?=.*[A-Z])(?!.*[-,.&/():;_*+><=!?#£$%½{}`´ ])(?!.*[a-z]).{0,6}$");
-        Matcher matcher = pattern.matcher(value);
-        return matcher.matches();
+        return character == '\u2028' || character == '\u2029';
     }
 
     /**
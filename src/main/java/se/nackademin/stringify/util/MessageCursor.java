@@ -0,0 +1,75 @@
+package se.nackademin.stringify.util;
+
+import lombok.Getter;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * A position in the message history of a chat session, identified by the date and guid of a message.
+ * <br />
+ * The cursor is handed to clients as an opaque url-safe string. Fetching the messages before a cursor
+ * does not depend on how far back in the history the cursor points.
+ */
+@Getter
+public class MessageCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Timestamp date;
+    private final UUID guid;
+
+    public MessageCursor(Timestamp date, UUID guid) {
+        this.date = date;
+        this.guid = guid;
+    }
+
+    /**
+     * Creates a cursor pointing at the given message.
+     *
+     * @param message A persisted message with a date and a guid.
+     * @return {@code MessageCursor.class}
+     */
+    public static MessageCursor of(Message message) {
+        return new MessageCursor(message.getDate(), message.getGuid());
+    }
+
+    /**
+     * Decodes a cursor previously created by {@code encode()}.
+     *
+     * @param value The encoded cursor.
+     * @return {@code MessageCursor.class}
+     * @throws InvalidCursorException when the value is not a valid cursor.
+     */
+    public static MessageCursor parse(String value) throws InvalidCursorException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR);
+            if (parts.length != 3)
+                throw new InvalidCursorException("Invalid cursor: " + value);
+
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new MessageCursor(Timestamp.from(instant), UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            throw new InvalidCursorException("Invalid cursor: " + value);
+        }
+    }
+
+    /**
+     * Encodes the cursor to an opaque url-safe string with full timestamp precision.
+     *
+     * @return The encoded cursor.
+     */
+    public String encode() {
+        Instant instant = date.toInstant();
+        String value = instant.getEpochSecond() + SEPARATOR + instant.getNano() + SEPARATOR + guid;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
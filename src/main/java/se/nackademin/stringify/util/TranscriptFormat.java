@@ -0,0 +1,121 @@
+package se.nackademin.stringify.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.exception.UnsupportedExportFormatException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The formats a transcript of a chat session can be exported in.
+ * <ul>
+ *     <li><strong>{@code NDJSON}</strong> writes every message as a JSON object on its own line.</li>
+ *     <li><strong>{@code CSV}</strong> writes a header row and a row per message, quoted as in RFC 4180.</li>
+ * </ul>
+ */
+@Getter
+public enum TranscriptFormat {
+
+    NDJSON("ndjson", new MediaType("application", "x-ndjson")) {
+        @Override
+        public TranscriptWriter writer(Writer out, ObjectMapper objectMapper) throws IOException {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Moves each message from the buffer of the generator to the writer without flushing the writer
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            ObjectWriter objectWriter = objectMapper.writerFor(MessageDto.class);
+
+            return message -> {
+                objectWriter.writeValue(generator, message);
+                generator.writeRaw('\n');
+                generator.flush();
+            };
+        }
+    },
+
+    CSV("csv", new MediaType("text", "csv")) {
+        @Override
+        public TranscriptWriter writer(Writer out, ObjectMapper objectMapper) throws IOException {
+            out.write("guid,date,from,avatar,content\r\n");
+
+            return message -> {
+                writeField(out, message.getGuid() == null ? null : message.getGuid().toString());
+                out.write(',');
+                writeField(out, message.getDate());
+                out.write(',');
+                writeField(out, message.getFrom());
+                out.write(',');
+                writeField(out, message.getAvatar());
+                out.write(',');
+                writeField(out, message.getContent());
+                out.write("\r\n");
+            };
+        }
+    };
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    TranscriptFormat(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Creates a writer of this format. Messages are written to the given writer as they arrive; buffering
+     * and flushing are left to the caller.
+     *
+     * @param out          The writer of the response
+     * @param objectMapper The object mapper used for JSON output
+     * @return {@code TranscriptWriter.class}
+     * @throws IOException when a header could not be written
+     */
+    public abstract TranscriptWriter writer(Writer out, ObjectMapper objectMapper) throws IOException;
+
+    /**
+     * Finds the format with the given name or file extension, ignoring case.
+     *
+     * @param name The name of the format, e.g. {@code "csv"}
+     * @return {@code TranscriptFormat.class}
+     * @throws UnsupportedExportFormatException when no format has the given name.
+     */
+    public static TranscriptFormat fromName(String name) throws UnsupportedExportFormatException {
+        for (TranscriptFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name))
+                return format;
+        }
+
+        throw new UnsupportedExportFormatException(String.format("Unsupported format %s, expected one of %s.",
+                name, Arrays.stream(values()).map(TranscriptFormat::getExtension).collect(Collectors.joining(", "))));
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a separator, a quote or a line break.
+     */
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null)
+            return;
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char character = value.charAt(i);
+            quote = character == ',' || character == '"' || character == '\n' || character == '\r';
+        }
+
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,19 @@
+package se.nackademin.stringify.util;
+
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.io.IOException;
+
+/**
+ * Writes the messages of a transcript one at a time, without holding on to them.
+ */
+public interface TranscriptWriter {
+
+    /**
+     * Writes a single message of the transcript.
+     *
+     * @param message The message to write
+     * @throws IOException when the message could not be written
+     */
+    void write(MessageDto message) throws IOException;
+}
@@ -0,0 +1,37 @@
+-- The schema as generated by Hibernate from the entities before the migrations were introduced.
+-- Existing databases are baselined at this version, so it must not change.
+
+CREATE TABLE chatsession
+(
+    id          uuid NOT NULL,
+    guid        uuid,
+    created     timestamp,
+    key         varchar(255),
+    connect_url varchar(255),
+    CONSTRAINT chatsession_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_chatsession_key UNIQUE (key)
+);
+
+CREATE TABLE profile
+(
+    id              uuid NOT NULL,
+    guid            uuid,
+    name            varchar(30),
+    avatar          varchar(255),
+    chat_session_id uuid,
+    CONSTRAINT profile_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_profile_chat_session FOREIGN KEY (chat_session_id) REFERENCES chatsession (id) ON DELETE CASCADE
+);
+
+CREATE TABLE message
+(
+    id              uuid NOT NULL,
+    guid            uuid,
+    sender          varchar(30),
+    content         varchar(1000),
+    avatar          varchar(255),
+    date            timestamp,
+    chat_session_id uuid,
+    CONSTRAINT message_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_message_chat_session FOREIGN KEY (chat_session_id) REFERENCES chatsession (id) ON DELETE CASCADE
+);
@@ -0,0 +1,50 @@
+-- The columns, tables and indexes added since the baseline. Databases that were updated by ddl-auto in between
+-- may already have some of them.
+
+ALTER TABLE chatsession
+    ADD COLUMN IF NOT EXISTS connected_count integer DEFAULT 0 NOT NULL,
+    ADD COLUMN IF NOT EXISTS max_connections integer;
+
+CREATE INDEX IF NOT EXISTS idx_profile_chat_session ON profile (chat_session_id);
+
+CREATE INDEX IF NOT EXISTS idx_message_chat_session_date_guid ON message (chat_session_id, date, guid);
+
+CREATE TABLE IF NOT EXISTS notice_outbox
+(
+    id          uuid         NOT NULL,
+    destination varchar(255) NOT NULL,
+    payload     bytea        NOT NULL,
+    created     timestamp    NOT NULL,
+    CONSTRAINT notice_outbox_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_notice_outbox_created ON notice_outbox (created);
+
+-- Replaces the foreign keys to chatsession, named by Hibernate in baselined databases, with named keys that
+-- cascade deletes, so that baselined and new databases have the same constraints.
+DO
+$$
+    DECLARE
+        foreign_key record;
+    BEGIN
+        FOR foreign_key IN
+            SELECT conrelid::regclass AS table_name, conname
+            FROM pg_constraint
+            WHERE contype = 'f'
+              AND confrelid = 'chatsession'::regclass
+              AND conrelid IN ('profile'::regclass, 'message'::regclass)
+            LOOP
+                EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', foreign_key.table_name, foreign_key.conname);
+            END LOOP;
+    END
+$$;
+
+ALTER TABLE profile
+    ADD CONSTRAINT fk_profile_chat_session FOREIGN KEY (chat_session_id) REFERENCES chatsession (id)
+        ON DELETE CASCADE NOT VALID;
+ALTER TABLE profile VALIDATE CONSTRAINT fk_profile_chat_session;
+
+ALTER TABLE message
+    ADD CONSTRAINT fk_message_chat_session FOREIGN KEY (chat_session_id) REFERENCES chatsession (id)
+        ON DELETE CASCADE NOT VALID;
+ALTER TABLE message VALIDATE CONSTRAINT fk_message_chat_session;
@@ -0,0 +1,50 @@
+-- Range-partitions the messages by the day of their date. History reads are bounded by the creation of their
+-- chat session, so the planner only visits the partitions the session can have messages in, and expired
+-- messages are removed by dropping whole partitions (see MessagePartitionMaintainer).
+-- The primary key of a partitioned table must contain the partition key, so it becomes (id, date).
+
+ALTER TABLE message RENAME TO message_unpartitioned;
+ALTER TABLE message_unpartitioned RENAME CONSTRAINT message_pkey TO message_unpartitioned_pkey;
+ALTER INDEX idx_message_chat_session_date_guid RENAME TO idx_message_unpartitioned_chat_session_date_guid;
+
+CREATE TABLE message
+(
+    id              uuid      NOT NULL,
+    guid            uuid,
+    sender          varchar(30),
+    content         varchar(1000),
+    avatar          varchar(255),
+    date            timestamp NOT NULL,
+    chat_session_id uuid,
+    CONSTRAINT message_pkey PRIMARY KEY (id, date),
+    CONSTRAINT fk_message_chat_session FOREIGN KEY (chat_session_id) REFERENCES chatsession (id) ON DELETE CASCADE
+) PARTITION BY RANGE (date);
+
+CREATE INDEX idx_message_chat_session_date_guid ON message (chat_session_id, date, guid);
+
+-- One partition per day from the oldest message until a week ahead, named like message_p20201130.
+DO
+$$
+    DECLARE
+        partition_day date;
+        last_day      date;
+    BEGIN
+        SELECT LEAST(COALESCE(min(date)::date, current_date), current_date - 1),
+               GREATEST(COALESCE(max(date)::date, current_date), current_date + 7)
+        INTO partition_day, last_day
+        FROM message_unpartitioned;
+
+        WHILE partition_day <= last_day
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF message FOR VALUES FROM (%L) TO (%L)',
+                               'message_p' || to_char(partition_day, 'YYYYMMDD'), partition_day, partition_day + 1);
+                partition_day := partition_day + 1;
+            END LOOP;
+    END
+$$;
+
+INSERT INTO message (id, guid, sender, content, avatar, date, chat_session_id)
+SELECT id, guid, sender, content, avatar, COALESCE(date, localtimestamp), chat_session_id
+FROM message_unpartitioned;
+
+DROP TABLE message_unpartitioned;
@@ -0,0 +1,8 @@
+-- Sets the connection count of every chat session to its number of profiles. Sessions that existed before the
+-- column was added got the default of 0, which would let them admit more profiles than their capacity.
+
+UPDATE chatsession
+SET connected_count = counted.profiles
+FROM (SELECT chat_session_id, count(*) AS profiles FROM profile GROUP BY chat_session_id) counted
+WHERE chatsession.id = counted.chat_session_id
+  AND chatsession.connected_count <> counted.profiles;
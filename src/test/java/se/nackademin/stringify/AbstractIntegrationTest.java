@@ -10,7 +10,7 @@ public abstract class AbstractIntegrationTest {
     private static final PostgreSQLContainer postgreSQLContainer;
 
     static {
-        postgreSQLContainer = new PostgreSQLContainer()
+        postgreSQLContainer = new PostgreSQLContainer("postgres:13")
                 .withDatabaseName("postgresDB")
                 .withUsername("root")
                 .withPassword("password");
@@ -0,0 +1,92 @@
+package se.nackademin.stringify.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.configuration.SessionRegistryProperties;
+import se.nackademin.stringify.domain.ChatSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActiveSessionRegistryTest {
+
+    private SessionRegistryProperties properties;
+    private ActiveSessionRegistry registry;
+    private ChatSession chatSession;
+    private List<UUID> profileGuids;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SessionRegistryProperties();
+        registry = new ActiveSessionRegistry(properties, new ClusterProperties());
+
+        chatSession = MockData.getMockChatSessionEntity();
+        chatSession.setId(UUID.randomUUID());
+        profileGuids = List.of(MockData.getMockProfileEntity().getGuid());
+    }
+
+    @DisplayName("A registered session should be found by both guid and key")
+    @Test
+    void registeredSessionShouldBeFoundByGuidAndKey() {
+        registry.register(chatSession, profileGuids);
+
+        assertThat(registry.findByGuid(chatSession.getGuid())).isPresent();
+        assertThat(registry.findByKey(chatSession.getKey()))
+                .hasValueSatisfying(session -> assertThat(session.getId()).isEqualTo(chatSession.getId()));
+    }
+
+    @DisplayName("Connect and disconnect should keep the connected profiles current")
+    @Test
+    void connectAndDisconnectShouldUpdateConnectedProfiles() {
+        registry.register(chatSession, profileGuids);
+        UUID profileGuid = UUID.randomUUID();
+
+        registry.profileConnected(chatSession.getGuid(), profileGuid);
+        assertThat(registry.findByGuid(chatSession.getGuid()).get().connectedCount()).isEqualTo(2);
+
+        registry.profileDisconnected(chatSession.getGuid(), profileGuid);
+        assertThat(registry.findByGuid(chatSession.getGuid()).get().connectedCount()).isEqualTo(1);
+    }
+
+    @DisplayName("An evicted session should no longer be found")
+    @Test
+    void evictedSessionShouldNotBeFound() {
+        registry.register(chatSession, profileGuids);
+
+        registry.evict(chatSession.getGuid());
+
+        assertThat(registry.findByGuid(chatSession.getGuid())).isEmpty();
+        assertThat(registry.findByKey(chatSession.getKey())).isEmpty();
+    }
+
+    @DisplayName("Sessions that have been idle longer than the idle timeout should be evicted")
+    @Test
+    void idleSessionsShouldBeEvicted() throws InterruptedException {
+        properties.setIdleTimeout(Duration.ZERO);
+        registry.register(chatSession, profileGuids);
+        Thread.sleep(5);
+
+        registry.evictIdle();
+
+        assertThat(registry.size()).isZero();
+    }
+
+    @DisplayName("Checking if a session is registered should not keep it from being evicted as idle")
+    @Test
+    void isRegisteredShouldNotTouchSession() throws InterruptedException {
+        properties.setIdleTimeout(Duration.ofMillis(20));
+        registry.register(chatSession, profileGuids);
+        Thread.sleep(30);
+
+        assertThat(registry.isRegistered(chatSession.getGuid())).isTrue();
+        registry.evictIdle();
+
+        assertThat(registry.isRegistered(chatSession.getGuid())).isFalse();
+    }
+}
@@ -0,0 +1,149 @@
+package se.nackademin.stringify.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.configuration.AdmissionProperties;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.domain.ChatSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+    private static final int THREADS = 64;
+
+    private AdmissionProperties properties;
+    private AdmissionControl admissionControl;
+    private ChatSession chatSession;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AdmissionProperties();
+        admissionControl = new AdmissionControl(properties, new ClusterProperties());
+
+        chatSession = MockData.getMockChatSessionEntity();
+        chatSession.setConnectedCount(1);
+    }
+
+    @DisplayName("A chat session should admit profiles up to its capacity")
+    @Test
+    void admissionsShouldStopAtCapacity() {
+        for (int i = 1; i < properties.getDefaultCapacity(); i++) {
+            assertThat(admissionControl.admit(chatSession)).isTrue();
+        }
+
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isFalse();
+        assertThat(admissionControl.admit(chatSession)).isFalse();
+    }
+
+    @DisplayName("Finding a meeting should not hold a slot, however often it is repeated")
+    @Test
+    void repeatedLookupsShouldNotTakeSlots() {
+        chatSession.setMaxConnections(2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(admissionControl.hasFreeSlot(chatSession)).isTrue();
+        }
+
+        assertThat(admissionControl.admit(chatSession)).isTrue();
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isFalse();
+    }
+
+    @DisplayName("The capacity of the chat session should take precedence over the default")
+    @Test
+    void chatSessionCapacityShouldOverrideDefault() {
+        chatSession.setMaxConnections(2);
+
+        assertThat(admissionControl.admit(chatSession)).isTrue();
+        assertThat(admissionControl.admit(chatSession)).isFalse();
+    }
+
+    @DisplayName("A released slot should be taken by the next profile")
+    @Test
+    void releasedSlotShouldBeReusable() {
+        chatSession.setConnectedCount(properties.getDefaultCapacity());
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isFalse();
+
+        admissionControl.release(chatSession.getGuid());
+
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isTrue();
+        assertThat(admissionControl.admit(chatSession)).isTrue();
+    }
+
+    @DisplayName("Concurrent joins should never admit more profiles than the capacity")
+    @RepeatedTest(20)
+    void concurrentJoinsShouldNotExceedCapacity() throws Exception {
+        AtomicInteger admitted = new AtomicInteger();
+
+        runConcurrently(() -> {
+            if (admissionControl.hasFreeSlot(chatSession) && admissionControl.admit(chatSession))
+                admitted.incrementAndGet();
+        });
+
+        int free = properties.getDefaultCapacity() - chatSession.getConnectedCount();
+        assertThat(admitted.get()).isEqualTo(free);
+    }
+
+    @DisplayName("Joins racing with leaves should never hold more slots than the capacity")
+    @RepeatedTest(20)
+    void joinsRacingWithLeavesShouldNotExceedCapacity() throws Exception {
+        AtomicInteger connected = new AtomicInteger(chatSession.getConnectedCount());
+        AtomicInteger maxConnected = new AtomicInteger(connected.get());
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 100; i++) {
+                if (!admissionControl.admit(chatSession))
+                    continue;
+
+                maxConnected.accumulateAndGet(connected.incrementAndGet(), Math::max);
+                connected.decrementAndGet();
+                admissionControl.release(chatSession.getGuid());
+            }
+        });
+
+        assertThat(maxConnected.get()).isLessThanOrEqualTo(properties.getDefaultCapacity());
+        assertThat(connected.get()).isEqualTo(chatSession.getConnectedCount());
+    }
+
+    @DisplayName("Idle chat sessions should be seeded again on next use")
+    @Test
+    void idleSessionShouldBeSeededAgain() {
+        properties.setIdleTimeout(Duration.ZERO);
+        chatSession.setConnectedCount(properties.getDefaultCapacity());
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isFalse();
+
+        admissionControl.evictIdle();
+        chatSession.setConnectedCount(1);
+
+        assertThat(admissionControl.hasFreeSlot(chatSession)).isTrue();
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package se.nackademin.stringify.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.configuration.RecentMessageCacheProperties;
+import se.nackademin.stringify.dto.MessageDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+class RecentMessageCacheTest {
+
+    private RecentMessageCache cache;
+    private UUID chatSessionGuid;
+
+    @BeforeEach
+    void setUp() {
+        RecentMessageCacheProperties properties = new RecentMessageCacheProperties();
+        properties.setCapacity(25);
+        cache = new RecentMessageCache(properties, new ClusterProperties());
+        chatSessionGuid = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @DisplayName("Pages of a new meeting should be served from the buffer, newest page first")
+    @Test
+    void pagesOfNewMeetingShouldBeServedFromBuffer() {
+        cache.open(chatSessionGuid);
+        for (int i = 0; i < 15; i++) {
+            cache.append(chatSessionGuid, message("Hello " + i));
+        }
+
+        assertThat(contents(cache.page(chatSessionGuid, 0, 10, this::failingLoader).get()))
+                .containsExactly("Hello 5", "Hello 6", "Hello 7", "Hello 8", "Hello 9",
+                        "Hello 10", "Hello 11", "Hello 12", "Hello 13", "Hello 14");
+        assertThat(contents(cache.page(chatSessionGuid, 1, 10, this::failingLoader).get()))
+                .containsExactly("Hello 0", "Hello 1", "Hello 2", "Hello 3", "Hello 4");
+        assertThat(cache.page(chatSessionGuid, 2, 10, this::failingLoader).get()).isEmpty();
+        assertThat(cache.getHits()).isEqualTo(3);
+    }
+
+    @DisplayName("Pages older than the buffered messages should be a miss once the buffer has wrapped")
+    @Test
+    void pagesOlderThanBufferShouldMissAfterWrapping() {
+        cache.open(chatSessionGuid);
+        for (int i = 0; i < 30; i++) {
+            cache.append(chatSessionGuid, message("Hello " + i));
+        }
+
+        assertThat(contents(cache.page(chatSessionGuid, 1, 10, this::failingLoader).get()))
+                .startsWith("Hello 10");
+        assertThat(cache.page(chatSessionGuid, 2, 10, this::failingLoader)).isEmpty();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @DisplayName("A session without a buffer should be seeded once from the loader")
+    @Test
+    void sessionWithoutBufferShouldBeSeeded() {
+        List<MessageDto> history = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            history.add(message("Hello " + i));
+        }
+
+        assertThat(cache.page(chatSessionGuid, 0, 10, () -> history).get()).hasSize(5);
+        cache.append(chatSessionGuid, message("Hello 5"));
+
+        assertThat(contents(cache.page(chatSessionGuid, 0, 10, this::failingLoader).get())).endsWith("Hello 5");
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @DisplayName("Evicted buffers should no longer receive messages")
+    @Test
+    void evictedBufferShouldBeRemoved() {
+        cache.open(chatSessionGuid);
+        cache.evict(chatSessionGuid);
+        cache.append(chatSessionGuid, message("Hello"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @DisplayName("A message appended within a transaction should only be buffered once it has committed")
+    @Test
+    void messageShouldBeBufferedAfterCommit() {
+        cache.open(chatSessionGuid);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.append(chatSessionGuid, message("Hello"));
+
+        assertThat(cache.page(chatSessionGuid, 0, 10, this::failingLoader).get()).isEmpty();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(contents(cache.page(chatSessionGuid, 0, 10, this::failingLoader).get())).containsExactly("Hello");
+    }
+
+    @DisplayName("A message of a rolled back transaction should not be buffered")
+    @Test
+    void rolledBackMessageShouldNotBeBuffered() {
+        cache.open(chatSessionGuid);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.append(chatSessionGuid, message("Hello"));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(cache.page(chatSessionGuid, 0, 10, this::failingLoader).get()).isEmpty();
+    }
+
+    private List<MessageDto> failingLoader() {
+        return fail("The buffer should not be seeded");
+    }
+
+    private static MessageDto message(String content) {
+        return MessageDto.builder()
+                .guid(UUID.randomUUID())
+                .from("John Doe")
+                .content(content)
+                .date("2021-01-01 12:00")
+                .build();
+    }
+
+    private static List<String> contents(List<MessageDto> messages) {
+        return messages.stream().map(MessageDto::getContent).collect(Collectors.toList());
+    }
+}
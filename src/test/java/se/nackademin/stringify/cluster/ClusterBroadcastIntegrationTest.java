@@ -0,0 +1,212 @@
+package se.nackademin.stringify.cluster;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.RabbitMQContainer;
+import se.nackademin.stringify.StringifyApplication;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.exception.ChatSessionNotFoundException;
+import se.nackademin.stringify.exception.ConnectionLimitException;
+import se.nackademin.stringify.service.LiveCommunicationService;
+import se.nackademin.stringify.service.MeetingService;
+import se.nackademin.stringify.service.MessageService;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs two instances of the application against a shared PostgreSQL container and a RabbitMQ container,
+ * and verifies that a message sent through one instance reaches the clients of the other, and that the
+ * state changed through one instance is seen by the other.
+ */
+class ClusterBroadcastIntegrationTest {
+
+    private static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:13");
+    private static final RabbitMQContainer rabbitMQContainer = new RabbitMQContainer();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() {
+        postgreSQLContainer.start();
+        rabbitMQContainer.start();
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+
+        stompClient = new WebSocketStompClient(new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        stompClient.stop();
+        nodeB.close();
+        nodeA.close();
+        rabbitMQContainer.stop();
+        postgreSQLContainer.stop();
+    }
+
+    @DisplayName("A message sent through one node should reach the subscribers on every node exactly once")
+    @Test
+    void messageShouldReachSubscribersOnOtherNode() throws Exception {
+        UUID chatSessionGuid = nodeA.getBean(MeetingService.class)
+                .createNewMeeting(newProfile())
+                .getChatSession()
+                .getGuid();
+
+        BlockingQueue<MessageDto> receivedOnA = new LinkedBlockingQueue<>();
+        BlockingQueue<MessageDto> receivedOnB = new LinkedBlockingQueue<>();
+        StompSession sessionA = connect(nodeA, "/queue/meeting/" + chatSessionGuid, receivedOnA);
+        StompSession sessionB = connect(nodeB, "/queue/meeting/" + chatSessionGuid, receivedOnB);
+        Thread.sleep(500);
+
+        sessionA.send("/app/send/meeting/" + chatSessionGuid, MessageDto.builder()
+                .from("John Doe")
+                .avatar("avatar1")
+                .content("Hello from node A")
+                .build());
+
+        MessageDto onA = receivedOnA.poll(10, TimeUnit.SECONDS);
+        MessageDto onB = receivedOnB.poll(10, TimeUnit.SECONDS);
+        assertThat(onA).isNotNull();
+        assertThat(onB).isNotNull();
+        assertThat(onB.getGuid()).isEqualTo(onA.getGuid());
+        assertThat(onB.getContent()).isEqualTo("Hello from node A");
+
+        Thread.sleep(500);
+        assertThat(receivedOnA).isEmpty();
+        assertThat(receivedOnB).isEmpty();
+
+        sessionA.disconnect();
+        sessionB.disconnect();
+    }
+
+    @DisplayName("A chat session deleted through one node should no longer be found through the other")
+    @Test
+    void deletedSessionShouldNotBeFoundOnOtherNode() {
+        Profile profile = newProfile();
+        UUID chatSessionGuid = nodeA.getBean(MeetingService.class)
+                .createNewMeeting(profile)
+                .getChatSession()
+                .getGuid();
+        assertThat(nodeB.getBean(MeetingService.class).getMeetingByGuid(chatSessionGuid).getGuid())
+                .isEqualTo(chatSessionGuid);
+
+        nodeA.getBean(LiveCommunicationService.class).removeProfileDisconnected(chatSessionGuid, profile);
+
+        assertThatThrownBy(() -> nodeB.getBean(MeetingService.class).getMeetingByGuid(chatSessionGuid))
+                .isInstanceOf(ChatSessionNotFoundException.class);
+    }
+
+    @DisplayName("The newest history page read through one node should contain a message sent through the other")
+    @Test
+    void historyShouldContainMessageSentThroughOtherNode() {
+        UUID chatSessionGuid = nodeA.getBean(MeetingService.class)
+                .createNewMeeting(newProfile())
+                .getChatSession()
+                .getGuid();
+        assertThat(nodeB.getBean(MessageService.class).getHistoryPage(chatSessionGuid, 0)).isEmpty();
+
+        nodeA.getBean(LiveCommunicationService.class).storeMessage(chatSessionGuid, Message.builder()
+                .sender("John Doe")
+                .avatar("avatar1")
+                .content("Hello from node A")
+                .build());
+
+        assertThat(nodeB.getBean(MessageService.class).getHistoryPage(chatSessionGuid, 0))
+                .extracting(MessageDto::getContent)
+                .containsExactly("Hello from node A");
+    }
+
+    @DisplayName("Profiles connecting through both nodes should not exceed the capacity of the chat session")
+    @Test
+    void capacityShouldHoldAcrossNodes() {
+        UUID chatSessionGuid = nodeA.getBean(MeetingService.class)
+                .createNewMeeting(newProfile())
+                .getChatSession()
+                .getGuid();
+        List<ConfigurableApplicationContext> nodes = List.of(nodeA, nodeB);
+        for (int i = 1; i < 5; i++) {
+            nodes.get(i % 2).getBean(LiveCommunicationService.class).storeProfileConnected(chatSessionGuid, newProfile());
+        }
+
+        assertThatThrownBy(() -> nodeA.getBean(LiveCommunicationService.class)
+                .storeProfileConnected(chatSessionGuid, newProfile()))
+                .isInstanceOf(ConnectionLimitException.class);
+        assertThatThrownBy(() -> nodeB.getBean(MeetingService.class).getMeetingByGuid(chatSessionGuid))
+                .isInstanceOf(ConnectionLimitException.class);
+    }
+
+    private static Profile newProfile() {
+        return Profile.builder()
+                .guid(UUID.randomUUID())
+                .name("John Doe")
+                .avatar("avatar1")
+                .build();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(StringifyApplication.class)
+                .properties(
+                        "server.port=0",
+                        "app.datasource.jdbc-url=" + postgreSQLContainer.getJdbcUrl(),
+                        "app.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "app.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "spring.jpa.show-sql=false",
+                        "spring.rabbitmq.host=" + rabbitMQContainer.getHost(),
+                        "spring.rabbitmq.port=" + rabbitMQContainer.getAmqpPort(),
+                        "spring.rabbitmq.username=" + rabbitMQContainer.getAdminUsername(),
+                        "spring.rabbitmq.password=" + rabbitMQContainer.getAdminPassword(),
+                        "app.cluster.enabled=true",
+                        "app.cluster.node-id=" + nodeId)
+                .run();
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, String destination,
+                                        BlockingQueue<MessageDto> received) throws Exception {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        StompSession session = stompClient
+                .connect("ws://localhost:" + port + "/stringify-chat", new StompSessionHandlerAdapter() {
+                })
+                .get(10, TimeUnit.SECONDS);
+
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return MessageDto.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((MessageDto) payload);
+            }
+        });
+        return session;
+    }
+}
@@ -0,0 +1,131 @@
+package se.nackademin.stringify.cluster;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import se.nackademin.stringify.configuration.ClusterProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterBroadcastInterceptorTest {
+
+    @Mock
+    RabbitTemplate rabbitTemplate;
+
+    @Mock
+    MessageChannel brokerChannel;
+
+    private ClusterProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ClusterProperties();
+        properties.setEnabled(true);
+        properties.setNodeId("node-a");
+    }
+
+    @DisplayName("A broadcast to a meeting should be published to the cluster exchange with its origin")
+    @Test
+    void meetingBroadcastShouldBePublished() {
+        String destination = "/queue/meeting/" + UUID.randomUUID();
+        Message<byte[]> message = broadcast(destination, null);
+
+        Message<?> result = new ClusterBroadcastInterceptor(properties, rabbitTemplate).preSend(message, brokerChannel);
+
+        ArgumentCaptor<org.springframework.amqp.core.Message> published =
+                ArgumentCaptor.forClass(org.springframework.amqp.core.Message.class);
+        then(rabbitTemplate).should().send(eq("stringify.broadcast"), eq(""), published.capture());
+        assertThat(result).isSameAs(message);
+        assertThat(published.getValue().getBody()).isEqualTo(message.getPayload());
+        assertThat(published.getValue().getMessageProperties().<String>getHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER))
+                .isEqualTo("node-a");
+        assertThat(published.getValue().getMessageProperties().<String>getHeader(ClusterBroadcastInterceptor.DESTINATION_HEADER))
+                .isEqualTo(destination);
+        assertThat(published.getValue().getMessageProperties().getContentType()).isEqualTo("application/json");
+    }
+
+    @DisplayName("A broadcast relayed from another node should not be published again")
+    @Test
+    void relayedBroadcastShouldNotBePublished() {
+        Message<byte[]> message = broadcast("/queue/meeting/" + UUID.randomUUID(), "node-b");
+
+        new ClusterBroadcastInterceptor(properties, rabbitTemplate).preSend(message, brokerChannel);
+
+        then(rabbitTemplate).should(never()).send(anyString(), anyString(), any(org.springframework.amqp.core.Message.class));
+    }
+
+    @DisplayName("Messages to destinations that are not relayed should stay local")
+    @Test
+    void otherDestinationShouldNotBePublished() {
+        Message<byte[]> message = broadcast("/queue/other/" + UUID.randomUUID(), null);
+
+        new ClusterBroadcastInterceptor(properties, rabbitTemplate).preSend(message, brokerChannel);
+
+        then(rabbitTemplate).should(never()).send(anyString(), anyString(), any(org.springframework.amqp.core.Message.class));
+    }
+
+    @DisplayName("A broadcast from another node should be delivered to the local broker")
+    @Test
+    void broadcastFromOtherNodeShouldBeDelivered() {
+        String destination = "/queue/connect/" + UUID.randomUUID();
+        org.springframework.amqp.core.Message broadcast = amqpBroadcast(destination, "node-b");
+
+        new ClusterBroadcastListener(properties, brokerChannel).onBroadcast(broadcast);
+
+        ArgumentCaptor<Message<?>> delivered = ArgumentCaptor.forClass(Message.class);
+        then(brokerChannel).should().send(delivered.capture());
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(delivered.getValue());
+        assertThat(accessor.getDestination()).isEqualTo(destination);
+        assertThat(accessor.getHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER)).isEqualTo("node-b");
+        assertThat(delivered.getValue().getPayload()).isEqualTo(broadcast.getBody());
+    }
+
+    @DisplayName("A broadcast published by this node should be ignored")
+    @Test
+    void ownBroadcastShouldBeIgnored() {
+        new ClusterBroadcastListener(properties, brokerChannel)
+                .onBroadcast(amqpBroadcast("/queue/meeting/" + UUID.randomUUID(), "node-a"));
+
+        then(brokerChannel).should(never()).send(any());
+    }
+
+    private Message<byte[]> broadcast(String destination, String origin) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (origin != null)
+            accessor.setHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER, origin);
+
+        return MessageBuilder.createMessage("{\"content\":\"Hello\"}".getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders());
+    }
+
+    private org.springframework.amqp.core.Message amqpBroadcast(String destination, String origin) {
+        org.springframework.amqp.core.MessageProperties messageProperties = new org.springframework.amqp.core.MessageProperties();
+        messageProperties.setHeader(ClusterBroadcastInterceptor.ORIGIN_HEADER, origin);
+        messageProperties.setHeader(ClusterBroadcastInterceptor.DESTINATION_HEADER, destination);
+        messageProperties.setContentType("application/json");
+        return new org.springframework.amqp.core.Message("{\"content\":\"Hello\"}".getBytes(StandardCharsets.UTF_8),
+                messageProperties);
+    }
+}
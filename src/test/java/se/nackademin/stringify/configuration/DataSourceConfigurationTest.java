@@ -0,0 +1,54 @@
+package se.nackademin.stringify.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourceConfigurationTest {
+
+    private DataSourcePoolProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DataSourcePoolProperties();
+        properties.setDatabaseCores(4);
+        properties.setMinimumSize(0);
+    }
+
+    @DisplayName("Pool should be sized by the database cores when more threads may use a connection")
+    @Test
+    void poolShouldBeSizedByDatabaseCores() {
+        properties.setBackgroundConnections(0);
+        properties.setTranscriptStreams(0);
+
+        assertThat(DataSourceConfiguration.maximumPoolSize(properties, 32)).isEqualTo(9);
+    }
+
+    @DisplayName("Pool should keep connections for background tasks and transcript exports")
+    @Test
+    void poolShouldReserveHeadroomForBackgroundTasks() {
+        assertThat(DataSourceConfiguration.maximumPoolSize(properties, 32)).isEqualTo(9 + 4 + 2);
+    }
+
+    @DisplayName("Pool should not be larger than the expected concurrency")
+    @Test
+    void poolShouldBeCappedByExpectedConcurrency() {
+        properties.setBackgroundConnections(0);
+        properties.setTranscriptStreams(0);
+        assertThat(DataSourceConfiguration.maximumPoolSize(properties, 6)).isEqualTo(6);
+
+        properties.setExpectedConcurrency(5);
+        assertThat(DataSourceConfiguration.maximumPoolSize(properties, 32)).isEqualTo(5);
+    }
+
+    @DisplayName("Pool should not be smaller than the minimum size")
+    @Test
+    void poolShouldNotBeSmallerThanMinimumSize() {
+        properties.setMinimumSize(10);
+        properties.setExpectedConcurrency(1);
+
+        assertThat(DataSourceConfiguration.maximumPoolSize(properties, 32)).isEqualTo(properties.getMinimumSize());
+    }
+}
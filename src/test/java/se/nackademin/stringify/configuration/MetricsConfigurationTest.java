@@ -0,0 +1,114 @@
+package se.nackademin.stringify.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.cache.WebSocketSessionIndex;
+import se.nackademin.stringify.controller.websocket.InboundRateLimitInterceptor;
+import se.nackademin.stringify.service.DisconnectCleanup;
+import se.nackademin.stringify.service.MessageWriteBehindQueue;
+import se.nackademin.stringify.service.RetentionReaper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsConfigurationTest {
+
+    @Mock
+    ActiveSessionRegistry activeSessionRegistry;
+
+    @Mock
+    RecentMessageCache recentMessageCache;
+
+    @Mock
+    MessageWriteBehindQueue messageWriteBehindQueue;
+
+    @Mock
+    InboundRateLimitInterceptor inboundRateLimitInterceptor;
+
+    @Mock
+    WebSocketSessionIndex webSocketSessionIndex;
+
+    @Mock
+    DisconnectCleanup disconnectCleanup;
+
+    @Mock
+    RetentionReaper retentionReaper;
+
+    @DisplayName("Chat session gauges and counters should read the in-memory state")
+    @Test
+    void chatSessionMetricsShouldReadInMemoryState() {
+        given(activeSessionRegistry.size()).willReturn(3);
+        given(activeSessionRegistry.connectedProfiles()).willReturn(7);
+        given(messageWriteBehindQueue.size()).willReturn(11);
+        given(recentMessageCache.getHits()).willReturn(13L);
+        given(recentMessageCache.getMisses()).willReturn(2L);
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfiguration()
+                .chatSessionMetrics(activeSessionRegistry, recentMessageCache, messageWriteBehindQueue)
+                .bindTo(registry);
+
+        assertThat(registry.get("stringify.sessions.active").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("stringify.sessions.profiles.connected").gauge().value()).isEqualTo(7);
+        assertThat(registry.get("stringify.messages.write.behind.size").gauge().value()).isEqualTo(11);
+        assertThat(registry.get("stringify.messages.recent.cache").tag("result", "hit").functionCounter().count())
+                .isEqualTo(13);
+        assertThat(registry.get("stringify.messages.recent.cache").tag("result", "miss").functionCounter().count())
+                .isEqualTo(2);
+    }
+
+    @DisplayName("Rate limit gauges and counters should read the interceptor")
+    @Test
+    void inboundRateLimitMetricsShouldReadInterceptor() {
+        given(inboundRateLimitInterceptor.size()).willReturn(4);
+        given(inboundRateLimitInterceptor.getRejectedBySession()).willReturn(5L);
+        given(inboundRateLimitInterceptor.getRejectedByMeeting()).willReturn(6L);
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfiguration().inboundRateLimitMetrics(inboundRateLimitInterceptor).bindTo(registry);
+
+        assertThat(registry.get("stringify.stomp.rate.limit.buckets").gauge().value()).isEqualTo(4);
+        assertThat(registry.get("stringify.stomp.rate.limit.rejected").tag("limit", "session").functionCounter().count())
+                .isEqualTo(5);
+        assertThat(registry.get("stringify.stomp.rate.limit.rejected").tag("limit", "meeting").functionCounter().count())
+                .isEqualTo(6);
+    }
+
+    @DisplayName("Session cleanup gauges should read the index and the dropped profiles")
+    @Test
+    void sessionCleanupMetricsShouldReadInMemoryState() {
+        given(webSocketSessionIndex.size()).willReturn(8);
+        given(disconnectCleanup.size()).willReturn(2);
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfiguration().sessionCleanupMetrics(webSocketSessionIndex, disconnectCleanup).bindTo(registry);
+
+        assertThat(registry.get("stringify.sessions.websocket.bound").gauge().value()).isEqualTo(8);
+        assertThat(registry.get("stringify.sessions.profiles.dropped").gauge().value()).isEqualTo(2);
+    }
+
+    @DisplayName("Retention counters should read the rows deleted by the reaper")
+    @Test
+    void retentionMetricsShouldReadDeletedRows() {
+        given(retentionReaper.getDeletedSessions()).willReturn(3L);
+        given(retentionReaper.getDeletedMessages()).willReturn(2500L);
+        given(retentionReaper.getChunks()).willReturn(4L);
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfiguration().retentionMetrics(retentionReaper).bindTo(registry);
+
+        assertThat(registry.get("stringify.retention.deleted").tag("table", "chatsession").functionCounter().count())
+                .isEqualTo(3);
+        assertThat(registry.get("stringify.retention.deleted").tag("table", "message").functionCounter().count())
+                .isEqualTo(2500);
+        assertThat(registry.get("stringify.retention.chunks").functionCounter().count()).isEqualTo(4);
+    }
+}
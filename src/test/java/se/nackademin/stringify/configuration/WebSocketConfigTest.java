@@ -0,0 +1,56 @@
+package se.nackademin.stringify.configuration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import se.nackademin.stringify.AbstractIntegrationTest;
+import se.nackademin.stringify.controller.websocket.InboundRateLimitInterceptor;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.websocket.rate-limit.session.burst=5",
+        "app.websocket.rate-limit.session.refill-per-second=0.001"
+})
+class WebSocketConfigTest extends AbstractIntegrationTest {
+
+    @Autowired
+    @Qualifier("clientInboundChannel")
+    AbstractSubscribableChannel clientInboundChannel;
+
+    @Autowired
+    InboundRateLimitInterceptor inboundRateLimitInterceptor;
+
+    private static Message<byte[]> frame(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/app/rate-limit-test");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @DisplayName("A burst of frames over the session limit should be dropped by the inbound channel")
+    @Test
+    void inboundChannelShouldDropFramesOverTheLimit() {
+        String sessionId = UUID.randomUUID().toString();
+        long rejectedBefore = inboundRateLimitInterceptor.getRejectedBySession();
+
+        int sent = 0;
+        for (int i = 0; i < 20; i++) {
+            if (clientInboundChannel.send(frame(sessionId)))
+                sent++;
+        }
+
+        assertThat(clientInboundChannel.getInterceptors()).contains(inboundRateLimitInterceptor);
+        assertThat(sent).isEqualTo(5);
+        assertThat(inboundRateLimitInterceptor.getRejectedBySession() - rejectedBefore).isEqualTo(15);
+    }
+}
@@ -84,7 +84,8 @@ class MeetingControllerTest extends AbstractIntegrationTest {
         ChatSession newChatSession = chatSessionRepository.findByKey(meeting.getChatSession().getKey()).get();
 
         assertThat(newChatSession).isNotNull();
-        assertThat(newChatSession.getProfilesConnected().size()).isEqualTo(1);
+        assertThat(profileRepository.countByChatSession_Id(newChatSession.getId())).isEqualTo(1);
+        assertThat(newChatSession.getConnectedCount()).isEqualTo(1);
     }
 
     @DisplayName("Empty json and empty json object should return BAD REQUEST")
@@ -171,6 +172,15 @@ class MeetingControllerTest extends AbstractIntegrationTest {
                 .andDo(print());
     }
 
+    @DisplayName("An invitation to an invalid email address should return Bad Request")
+    @Test
+    void invalidEmailShouldReturnBAD_REQUEST() throws Exception {
+        mockMvc.perform(post("/api/meetings/invite/not-an-email/by/John Doe")
+                .param("chat-id", mockChatSession.getGuid().toString()))
+                .andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
     @DisplayName("No given parameters should return Bad Request")
     @Test
     void noParametersGivenShouldReturnBAD_REQUEST() throws Exception {
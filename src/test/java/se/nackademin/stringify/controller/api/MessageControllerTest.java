@@ -9,6 +9,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.testcontainers.shaded.com.fasterxml.jackson.core.type.TypeReference;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
 import se.nackademin.stringify.AbstractIntegrationTest;
@@ -20,13 +21,15 @@ import se.nackademin.stringify.repository.MessageRepository;
 import se.nackademin.stringify.util.Key;
 
 import java.sql.Timestamp;
-import java.util.Date;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -118,4 +121,133 @@ class MessageControllerTest extends AbstractIntegrationTest {
 
         assertThat(messages.size()).isGreaterThan(0);
     }
+
+    @DisplayName("Following the cursor header should walk the whole history without gaps or duplicates")
+    @Test
+    void followingCursorShouldReturnEveryMessageOnce() throws Exception {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 25; i++) {
+            messageRepository.save(Message.builder()
+                    .id(UUID.randomUUID())
+                    .guid(UUID.randomUUID())
+                    .sender("John Doe")
+                    .content("Hello " + i)
+                    .avatar("avatar1")
+                    .chatSession(mockChatSession)
+                    .date(new Timestamp(start + i * 1000L))
+                    .build());
+        }
+
+        Set<UUID> seen = new HashSet<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            MockHttpServletRequestBuilder request = get("/api/messages/history")
+                    .param("chat-id", mockChatSession.getGuid().toString())
+                    .param("size", "10");
+            if (cursor != null)
+                request.param("before", cursor);
+
+            MvcResult result = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            List<MessageDto> messages = new ObjectMapper().readValue(result.getResponse().getContentAsString(),
+                    new TypeReference<List<MessageDto>>() {
+                    });
+            if (messages.isEmpty())
+                break;
+
+            pageSizes.add(messages.size());
+            messages.forEach(message -> assertThat(seen.add(message.getGuid())).isTrue());
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+        }
+
+        assertThat(seen).hasSize(25);
+        assertThat(pageSizes).containsExactly(10, 10, 5);
+    }
+
+    @DisplayName("Malformed cursor should return BAD REQUEST")
+    @Test
+    void malformedCursorShouldReturnBAD_REQUEST() throws Exception {
+        mockMvc.perform(get("/api/messages/history")
+                .param("chat-id", mockChatSession.getGuid().toString())
+                .param("before", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("NDJSON export should stream every message once, oldest first")
+    @Test
+    void ndjsonExportShouldStreamWholeHistoryInOrder() throws Exception {
+        saveMessages(25);
+
+        MvcResult started = mockMvc.perform(get("/api/messages/export")
+                .param("chat-id", mockChatSession.getGuid().toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"transcript-" + mockChatSession.getGuid() + ".ndjson\""))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(25);
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(new ObjectMapper().readValue(lines[i], MessageDto.class).getContent()).isEqualTo("Hello " + i);
+        }
+    }
+
+    @DisplayName("CSV export should stream a header and a row per message")
+    @Test
+    void csvExportShouldStreamHeaderAndRows() throws Exception {
+        saveMessages(3);
+
+        MvcResult started = mockMvc.perform(get("/api/messages/export")
+                .param("chat-id", mockChatSession.getGuid().toString())
+                .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn();
+
+        String[] rows = result.getResponse().getContentAsString().split("\r\n");
+        assertThat(rows).hasSize(4);
+        assertThat(rows[0]).isEqualTo("guid,date,from,avatar,content");
+        assertThat(rows[3]).endsWith(",John Doe,avatar1,Hello 2");
+    }
+
+    @DisplayName("Export of a non existing chat session should return NOT FOUND")
+    @Test
+    void exportOfNonExistentChatSessionShouldReturnNOT_FOUND() throws Exception {
+        mockMvc.perform(get("/api/messages/export")
+                .param("chat-id", UUID.randomUUID().toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("Export in an unsupported format should return BAD REQUEST")
+    @Test
+    void exportInUnsupportedFormatShouldReturnBAD_REQUEST() throws Exception {
+        mockMvc.perform(get("/api/messages/export")
+                .param("chat-id", mockChatSession.getGuid().toString())
+                .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void saveMessages(int count) {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            messageRepository.save(Message.builder()
+                    .guid(UUID.randomUUID())
+                    .sender("John Doe")
+                    .content("Hello " + i)
+                    .avatar("avatar1")
+                    .chatSession(mockChatSession)
+                    .date(new Timestamp(start + i * 1000L))
+                    .build());
+        }
+    }
 }
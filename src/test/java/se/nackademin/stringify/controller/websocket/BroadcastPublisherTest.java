@@ -0,0 +1,129 @@
+package se.nackademin.stringify.controller.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.util.MimeTypeUtils;
+import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.dto.ProfileDto;
+import se.nackademin.stringify.util.DateUtil;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
+
+@ExtendWith(MockitoExtension.class)
+class BroadcastPublisherTest {
+
+    @Mock
+    SimpMessageSendingOperations messagingTemplate;
+
+    private ObjectMapper objectMapper;
+    private BroadcastPublisher broadcastPublisher;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        broadcastPublisher = new BroadcastPublisher(messagingTemplate, objectMapper);
+    }
+
+    private MessageDto message(UUID guid, String content) {
+        return Message.builder()
+                .guid(guid)
+                .sender("John Doe")
+                .avatar("avatar1")
+                .content(content)
+                .date(DateUtil.now())
+                .build()
+                .convertToDto();
+    }
+
+    @DisplayName("An encoded message should be identical to the serialized MessageDto")
+    @ParameterizedTest
+    @ValueSource(strings = {"Hello there!", "\"quoted\" \\ back\\slash", "line\nbreak\ttab\u0001",
+            "åäö – 日本語 😀", "</script>"})
+    void encodedMessageShouldMatchSerializedDto(String content) throws Exception {
+        MessageDto message = message(UUID.randomUUID(), content);
+
+        assertThat(broadcastPublisher.encode(message))
+                .isEqualTo(objectMapper.writeValueAsBytes(message));
+    }
+
+    @DisplayName("An encoded message without guid should be identical to the serialized MessageDto")
+    @Test
+    void encodedMessageWithoutGuidShouldMatchSerializedDto() throws Exception {
+        MessageDto message = message(null, "Hello there!");
+        message.setAvatar(null);
+
+        assertThat(broadcastPublisher.encode(message))
+                .isEqualTo(objectMapper.writeValueAsBytes(message));
+    }
+
+    @DisplayName("The reused buffer should not leak a previous message into the next")
+    @Test
+    void consecutiveMessagesShouldBeEncodedIndependently() throws Exception {
+        MessageDto longMessage = message(UUID.randomUUID(), "x".repeat(1000));
+        MessageDto shortMessage = message(UUID.randomUUID(), "Hi");
+
+        broadcastPublisher.encode(longMessage);
+
+        assertThat(broadcastPublisher.encode(shortMessage))
+                .isEqualTo(objectMapper.writeValueAsBytes(shortMessage));
+    }
+
+    @DisplayName("A message should be published to the meeting as JSON bytes")
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishMessageShouldSendJsonBytesToMeeting() throws Exception {
+        UUID chatSessionGuid = UUID.randomUUID();
+        MessageDto message = message(UUID.randomUUID(), "Hello there!");
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> captor =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+
+        broadcastPublisher.publishMessage(chatSessionGuid, message);
+
+        then(messagingTemplate).should().send(eq("/queue/meeting/" + chatSessionGuid), captor.capture());
+        assertThat(captor.getValue().getPayload())
+                .isEqualTo(objectMapper.writeValueAsBytes(message));
+        assertThat(captor.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE))
+                .isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    @DisplayName("A connection notice should be serialized like any other payload")
+    @Test
+    void encodedNoticeShouldMatchSerializedNotice() throws Exception {
+        ConnectionNotice notice = new ConnectionNotice(
+                ProfileDto.builder().guid(UUID.randomUUID()).name("John Doe").avatar("avatar1").build(),
+                MessageDto.builder().from("Notice").content("John Doe has connected to the meeting.").build());
+
+        assertThat(broadcastPublisher.encode(notice)).isEqualTo(objectMapper.writeValueAsBytes(notice));
+    }
+
+    @DisplayName("A serialized payload should be published as is")
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishShouldSendPayloadAsIs() {
+        byte[] payload = "{}".getBytes();
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> captor =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+
+        broadcastPublisher.publish("/queue/connect/x", payload);
+
+        then(messagingTemplate).should().send(eq("/queue/connect/x"), captor.capture());
+        assertThat(captor.getValue().getPayload()).isSameAs(payload);
+    }
+}
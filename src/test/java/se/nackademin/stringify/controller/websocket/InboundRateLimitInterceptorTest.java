@@ -0,0 +1,177 @@
+package se.nackademin.stringify.controller.websocket;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import se.nackademin.stringify.configuration.WebSocketProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundRateLimitInterceptorTest {
+
+    private static final int THREADS = 64;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private WebSocketProperties properties;
+    private InboundRateLimitInterceptor interceptor;
+    private String meeting;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebSocketProperties();
+        properties.getRateLimit().setSession(new WebSocketProperties.Bucket(10, 5));
+        properties.getRateLimit().setMeeting(new WebSocketProperties.Bucket(30, 15));
+        interceptor = new InboundRateLimitInterceptor(properties);
+        meeting = InboundRateLimitInterceptor.MEETING_DESTINATION_PREFIX + UUID.randomUUID();
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private int acquired(String sessionId, String destination, int attempts, long now) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (interceptor.tryAcquire(sessionId, destination, now))
+                acquired++;
+        }
+        return acquired;
+    }
+
+    @DisplayName("A session should send its burst at once and then be limited")
+    @Test
+    void sessionShouldBeLimitedAfterBurst() {
+        assertThat(acquired("a", meeting, 20, 0)).isEqualTo(10);
+        assertThat(interceptor.getRejectedBySession()).isEqualTo(10);
+        assertThat(interceptor.getRejectedByMeeting()).isZero();
+    }
+
+    @DisplayName("A session should be refilled at the configured rate")
+    @Test
+    void sessionShouldBeRefilledAtRate() {
+        acquired("a", meeting, 10, 0);
+
+        assertThat(acquired("a", meeting, 10, SECOND)).isEqualTo(5);
+        assertThat(acquired("a", meeting, 20, 3 * SECOND)).isEqualTo(10);
+    }
+
+    @DisplayName("The clients of a meeting should share the meeting's limit")
+    @Test
+    void meetingShouldBeLimitedAcrossSessions() {
+        int acquired = 0;
+        for (int session = 0; session < 5; session++) {
+            acquired += acquired("session-" + session, meeting, 10, 0);
+        }
+
+        assertThat(acquired).isEqualTo(30);
+        assertThat(interceptor.getRejectedByMeeting()).isEqualTo(20);
+        assertThat(acquired("other", InboundRateLimitInterceptor.MEETING_DESTINATION_PREFIX + UUID.randomUUID(),
+                1, 0)).isEqualTo(1);
+    }
+
+    @DisplayName("Frames dropped over the meeting limit should not use up the session's limit")
+    @Test
+    void meetingRejectionShouldNotChargeSession() {
+        for (int session = 0; session < 3; session++) {
+            acquired("session-" + session, meeting, 10, 0);
+        }
+
+        assertThat(acquired("a", meeting, 20, 0)).isZero();
+        assertThat(interceptor.getRejectedByMeeting()).isEqualTo(20);
+        assertThat(interceptor.getRejectedBySession()).isZero();
+        assertThat(acquired("a", InboundRateLimitInterceptor.MEETING_DESTINATION_PREFIX + UUID.randomUUID(),
+                20, 0)).isEqualTo(10);
+    }
+
+    @DisplayName("Frames over the limit should be dropped and other frames passed on")
+    @Test
+    void preSendShouldDropFramesOverTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(interceptor.preSend(frame(SimpMessageType.MESSAGE, "a", meeting), null)).isNotNull();
+        }
+
+        assertThat(interceptor.preSend(frame(SimpMessageType.MESSAGE, "a", meeting), null)).isNull();
+        assertThat(interceptor.preSend(frame(SimpMessageType.SUBSCRIBE, "a", "/queue/meeting/x"), null)).isNotNull();
+        assertThat(interceptor.preSend(frame(SimpMessageType.HEARTBEAT, "a", null), null)).isNotNull();
+    }
+
+    @DisplayName("A disconnected session should forget its bucket")
+    @Test
+    void disconnectShouldForgetSessionBucket() {
+        acquired("a", "/app/connect/x", 10, 0);
+
+        interceptor.preSend(frame(SimpMessageType.DISCONNECT, "a", null), null);
+
+        assertThat(interceptor.size()).isZero();
+        assertThat(acquired("a", "/app/connect/x", 10, 0)).isEqualTo(10);
+    }
+
+    @DisplayName("Disabled limits should pass every frame on")
+    @Test
+    void disabledLimitShouldPassEveryFrame() {
+        properties.getRateLimit().setEnabled(false);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(interceptor.preSend(frame(SimpMessageType.MESSAGE, "a", meeting), null)).isNotNull();
+        }
+        assertThat(interceptor.size()).isZero();
+    }
+
+    @DisplayName("Only buckets that have refilled completely should be evicted")
+    @Test
+    void evictFullShouldKeepBucketsThatAreRefilling() {
+        long now = System.nanoTime();
+        interceptor.tryAcquire("idle", "/app/connect/x", now - 10 * SECOND);
+        acquired("busy", "/app/connect/x", 10, now);
+
+        interceptor.evictFull();
+
+        assertThat(interceptor.size()).isEqualTo(1);
+        assertThat(acquired("busy", "/app/connect/x", 1, now)).isZero();
+    }
+
+    @DisplayName("Concurrent frames should never exceed the burst")
+    @RepeatedTest(20)
+    void concurrentFramesShouldNotExceedBurst() throws Exception {
+        AtomicInteger acquired = new AtomicInteger();
+
+        runConcurrently(() -> acquired.addAndGet(acquired("a", meeting, 5, 0)));
+
+        assertThat(acquired.get()).isEqualTo(10);
+        assertThat(interceptor.getRejectedBySession()).isEqualTo(THREADS * 5 - 10);
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,44 +1,54 @@
 package se.nackademin.stringify.controller.websocket;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import se.nackademin.stringify.controller.response.ConnectionNotice;
 import se.nackademin.stringify.domain.Message;
 import se.nackademin.stringify.domain.Profile;
 import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.dto.ProfileDto;
 import se.nackademin.stringify.exception.ChatSessionNotFoundException;
+import se.nackademin.stringify.service.DisconnectCleanup;
 import se.nackademin.stringify.service.LiveCommunicationService;
-import se.nackademin.stringify.util.DateUtil;
 
 import java.util.UUID;
 
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 
 @ExtendWith(MockitoExtension.class)
 class LiveCommunicationControllerTest {
 
-    @InjectMocks
     LiveCommunicationController liveCommunicationController;
 
     @Mock
     LiveCommunicationService liveCommunicationService;
 
+    @Mock
+    SimpMessageSendingOperations messagingTemplate;
+
+    @Mock
+    DisconnectCleanup disconnectCleanup;
+
     private ProfileDto mockProfileDto;
 
     private MessageDto mockMessageDto;
 
     @BeforeEach
     void setUp() {
+        liveCommunicationController = new LiveCommunicationController(liveCommunicationService,
+                new BroadcastPublisher(messagingTemplate, new ObjectMapper()), disconnectCleanup);
+
         mockProfileDto = ProfileDto.builder()
                 .guid(UUID.randomUUID())
                 .name("John Doe")
@@ -54,15 +64,14 @@ class LiveCommunicationControllerTest {
     }
 
     @Test
-    void testTransmitWithValidMessageShouldReturnMessageDto() throws ChatSessionNotFoundException {
-        Message message = mockMessageDto.convertToEntity();
-        message.setDate(DateUtil.now());
-        given(liveCommunicationService.storeMessage(any(UUID.class), any(Message.class))).willReturn(message);
+    void testTransmitWithValidMessageShouldPublishMessage() throws ChatSessionNotFoundException {
+        UUID chatSessionGuid = UUID.randomUUID();
+        given(liveCommunicationService.storeMessage(any(UUID.class), any(Message.class))).willReturn(mockMessageDto);
 
-        assertThat(liveCommunicationController.transmit(UUID.randomUUID(), mockMessageDto))
-                .isInstanceOf(MessageDto.class);
+        liveCommunicationController.transmit(chatSessionGuid, mockMessageDto);
 
         then(liveCommunicationService).should(times(1)).storeMessage(any(UUID.class), any(Message.class));
+        then(messagingTemplate).should(times(1)).send(eq("/queue/meeting/" + chatSessionGuid), any());
     }
 
     @Test
@@ -72,6 +81,7 @@ class LiveCommunicationControllerTest {
         assertThatThrownBy(() -> liveCommunicationController.transmit(UUID.randomUUID(), mockMessageDto)).isInstanceOf(NullPointerException.class);
 
         then(liveCommunicationService).should(times(1)).storeMessage(any(UUID.class), any(Message.class));
+        then(messagingTemplate).should(never()).send(any(), any());
     }
 
     @Test
@@ -81,6 +91,7 @@ class LiveCommunicationControllerTest {
         assertThatThrownBy(() -> liveCommunicationController.transmit(UUID.randomUUID(), mockMessageDto)).isInstanceOf(NullPointerException.class);
 
         then(liveCommunicationService).should(times(1)).storeMessage(any(UUID.class), any(Message.class));
+        then(messagingTemplate).should(never()).send(any(), any());
     }
 
     @Test
@@ -94,16 +105,20 @@ class LiveCommunicationControllerTest {
     }
 
     @Test
-    void validChatIdShouldReturnConnectionNotice() {
+    void validChatIdShouldStoreConnectionNotice() {
+        UUID chatSessionGuid = UUID.randomUUID();
         given(liveCommunicationService.storeProfileConnected(any(UUID.class), any(Profile.class)))
                 .willReturn(new ConnectionNotice(mockProfileDto, new MessageDto()));
 
-        liveCommunicationController.notifyOnConnect(UUID.randomUUID(),
-                mockProfileDto);
+        liveCommunicationController.notifyOnConnect(chatSessionGuid,
+                mockProfileDto, "session-1");
 
         then(liveCommunicationService)
                 .should(times(1))
                 .storeProfileConnected(any(UUID.class), any(Profile.class));
+        then(disconnectCleanup).should(times(1))
+                .profileConnected(eq("session-1"), eq(chatSessionGuid), any(Profile.class));
+        then(messagingTemplate).shouldHaveNoInteractions();
     }
 
     @Test
@@ -111,20 +126,24 @@ class LiveCommunicationControllerTest {
         given(liveCommunicationService.storeProfileConnected(any(UUID.class), any(Profile.class)))
                 .willThrow(ChatSessionNotFoundException.class);
 
-        assertThatThrownBy(() -> liveCommunicationController.notifyOnConnect(UUID.randomUUID(), new ProfileDto()));
+        assertThatThrownBy(() -> liveCommunicationController.notifyOnConnect(UUID.randomUUID(), new ProfileDto(), "session-1"));
+        then(disconnectCleanup).shouldHaveNoInteractions();
     }
 
     @Test
-    void validChatIdShouldReturnConnectionNoticeOnDisconnect() {
+    void validChatIdShouldStoreConnectionNoticeOnDisconnect() {
+        UUID chatSessionGuid = UUID.randomUUID();
         given(liveCommunicationService.removeProfileDisconnected(any(UUID.class), any(Profile.class)))
                 .willReturn(new ConnectionNotice(mockProfileDto, new MessageDto()));
 
-        liveCommunicationController.notifyOnDisconnect(UUID.randomUUID(),
-                mockProfileDto);
+        liveCommunicationController.notifyOnDisconnect(chatSessionGuid,
+                mockProfileDto, "session-1");
 
         then(liveCommunicationService)
                 .should(times(1))
                 .removeProfileDisconnected(any(UUID.class), any(Profile.class));
+        then(disconnectCleanup).should(times(1)).profileDisconnected("session-1", mockProfileDto.getGuid());
+        then(messagingTemplate).shouldHaveNoInteractions();
     }
 
 }
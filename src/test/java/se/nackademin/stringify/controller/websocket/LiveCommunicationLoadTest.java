@@ -0,0 +1,213 @@
+package se.nackademin.stringify.controller.websocket;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.service.MeetingService;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the message fan-out from {@code /app/send/meeting/{id}} to {@code /queue/meeting/{id}}.
+ * <br />
+ * Boots the application against an embedded database, connects {@code load.clients-per-meeting} STOMP
+ * clients to each of {@code load.meetings} meetings and lets every meeting send
+ * {@code load.messages-per-second} messages for {@code load.duration-seconds}. Every message carries the
+ * time it was scheduled to be sent, so that the recorded publish-to-receive latency includes the time a
+ * sender was held up. Latency percentiles and throughput are printed when the run is done. The inbound
+ * rate limits are disabled so that the configured send rate is delivered in full.
+ * <br />
+ * Excluded from {@code test}; run with {@code ./gradlew loadTest -Dload.meetings=400}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.datasource.jdbc-url=jdbc:h2:mem:load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "app.datasource.username=sa",
+        "app.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.flyway.enabled=false",
+        "app.messages.partitions.enabled=false",
+        "app.websocket.rate-limit.enabled=false"
+})
+class LiveCommunicationLoadTest {
+
+    private static final int MEETINGS = Integer.getInteger("load.meetings", 200);
+    private static final int CLIENTS_PER_MEETING = Integer.getInteger("load.clients-per-meeting", 5);
+    private static final int MESSAGES_PER_SECOND = Integer.getInteger("load.messages-per-second", 2);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 30);
+    private static final long MAX_P99_MILLIS = Long.getLong("load.max-p99-millis", 250);
+    private static final String LATENCY_PREFIX = "latency:";
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    MeetingService meetingService;
+
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final List<StompSession> sessions = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+    private ScheduledExecutorService senders;
+
+    @AfterEach
+    void tearDown() {
+        if (senders != null)
+            senders.shutdownNow();
+        sessions.forEach(StompSession::disconnect);
+        if (stompClient != null)
+            stompClient.stop();
+    }
+
+    @DisplayName("Messages should be fanned out to every client of a meeting within the latency budget")
+    @Test
+    void fanOutLatency() throws Exception {
+        stompClient = new WebSocketStompClient(new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+        List<List<StompSession>> meetings = new ArrayList<>(MEETINGS);
+        List<UUID> meetingGuids = new ArrayList<>(MEETINGS);
+        for (int i = 0; i < MEETINGS; i++) {
+            UUID chatSessionGuid = createMeeting();
+            meetingGuids.add(chatSessionGuid);
+            meetings.add(connectClients(chatSessionGuid));
+        }
+        // subscriptions are registered asynchronously, let the last ones reach the broker
+        Thread.sleep(1000);
+
+        senders = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / MESSAGES_PER_SECOND;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEETINGS; i++) {
+            UUID chatSessionGuid = meetingGuids.get(i);
+            List<StompSession> clients = meetings.get(i);
+            long firstSend = start + (periodNanos * i / MEETINGS);
+            AtomicLong sequence = new AtomicLong();
+
+            senders.scheduleAtFixedRate(() -> {
+                long n = sequence.getAndIncrement();
+                long intendedSendTime = firstSend + n * periodNanos;
+                clients.get((int) (n % clients.size()))
+                        .send("/app/send/meeting/" + chatSessionGuid, message(intendedSendTime));
+                sent.incrementAndGet();
+            }, firstSend - System.nanoTime(), periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+        senders.shutdown();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+        long sendDuration = System.nanoTime() - start;
+
+        long expected = sent.get() * CLIENTS_PER_MEETING;
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.get() < expected && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+
+        report(expected, sendDuration);
+
+        assertThat(received.get()).isEqualTo(expected);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(latency.getValueAtPercentile(99)))
+                .isLessThanOrEqualTo(MAX_P99_MILLIS);
+    }
+
+    private UUID createMeeting() {
+        return meetingService.createNewMeeting(Profile.builder()
+                .guid(UUID.randomUUID())
+                .name("Load Host")
+                .avatar("avatar1")
+                .build())
+                .getChatSession()
+                .getGuid();
+    }
+
+    private List<StompSession> connectClients(UUID chatSessionGuid) throws Exception {
+        List<StompSession> clients = new ArrayList<>(CLIENTS_PER_MEETING);
+        for (int i = 0; i < CLIENTS_PER_MEETING; i++) {
+            StompSession session = stompClient
+                    .connect("ws://localhost:" + port + "/stringify-chat", new StompSessionHandlerAdapter() {
+                    })
+                    .get(10, TimeUnit.SECONDS);
+            session.subscribe("/queue/meeting/" + chatSessionGuid, new LatencyRecorder());
+            clients.add(session);
+            sessions.add(session);
+        }
+        return clients;
+    }
+
+    private MessageDto message(long intendedSendTime) {
+        return MessageDto.builder()
+                .from("Load Client")
+                .avatar("avatar1")
+                .content(LATENCY_PREFIX + intendedSendTime)
+                .build();
+    }
+
+    private void report(long expected, long sendDurationNanos) {
+        double seconds = sendDurationNanos / 1e9;
+        System.out.printf("%n%d meetings x %d clients, %d messages/s per meeting for %ds%n",
+                MEETINGS, CLIENTS_PER_MEETING, MESSAGES_PER_SECOND, DURATION_SECONDS);
+        System.out.printf("sent %d, delivered %d of %d expected%n", sent.get(), received.get(), expected);
+        System.out.printf("throughput: %.0f sent/s, %.0f delivered/s%n", sent.get() / seconds, received.get() / seconds);
+        System.out.printf("latency (ms): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                latency.getValueAtPercentile(50) / 1e6,
+                latency.getValueAtPercentile(90) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6,
+                latency.getValueAtPercentile(99.9) / 1e6,
+                latency.getMaxValue() / 1e6);
+        latency.outputPercentileDistribution(System.out, 1e6);
+    }
+
+    /**
+     * Records the time from the scheduled send of a message until a subscriber received it.
+     */
+    private class LatencyRecorder implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return MessageDto.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long receivedAt = System.nanoTime();
+            String content = ((MessageDto) payload).getContent();
+            if (content == null || !content.startsWith(LATENCY_PREFIX))
+                return;
+
+            long intendedSendTime = Long.parseLong(content.substring(LATENCY_PREFIX.length()));
+            latency.recordValue(Math.max(0, receivedAt - intendedSendTime));
+            received.incrementAndGet();
+        }
+    }
+}
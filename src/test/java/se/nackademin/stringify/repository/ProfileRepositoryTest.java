@@ -0,0 +1,104 @@
+package se.nackademin.stringify.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.nackademin.stringify.AbstractIntegrationTest;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProfileRepositoryTest extends AbstractIntegrationTest {
+
+    @Autowired
+    ProfileRepository profileRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private UUID chatSessionId;
+    private UUID firstProfile;
+    private UUID secondProfile;
+
+    @BeforeEach
+    void setUp() {
+        chatSessionId = UUID.randomUUID();
+        firstProfile = UUID.randomUUID();
+        secondProfile = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chatsession (id, guid, created, connected_count) VALUES (?, ?, ?, 2)",
+                chatSessionId, UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        for (UUID guid : new UUID[]{firstProfile, secondProfile}) {
+            jdbcTemplate.update("INSERT INTO profile (id, guid, name, chat_session_id) VALUES (?, ?, 'John Doe', ?)",
+                    UUID.randomUUID(), guid, chatSessionId);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM chatsession WHERE id = ?", chatSessionId);
+    }
+
+    @DisplayName("Deleting a profile should return the profiles left, or -1 if it was not found")
+    @Test
+    void deleteShouldCountRemaining() {
+        assertThat(profileRepository.deleteAndCountRemaining(firstProfile.toString(), chatSessionId.toString()))
+                .isEqualTo(1);
+        assertThat(profileRepository.deleteAndCountRemaining(firstProfile.toString(), chatSessionId.toString()))
+                .isEqualTo(-1);
+        assertThat(profileRepository.deleteAndCountRemaining(secondProfile.toString(), chatSessionId.toString()))
+                .isZero();
+    }
+
+    @DisplayName("The last of two concurrent disconnects should see no profiles left")
+    @Test
+    void concurrentDisconnectsShouldReachZero() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch firstDeleted = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> transactionTemplate.execute(status -> {
+                long remaining = profileRepository.deleteAndCountRemaining(firstProfile.toString(),
+                        chatSessionId.toString());
+                firstDeleted.countDown();
+                try {
+                    commitFirst.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return remaining;
+            }));
+            assertThat(firstDeleted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<Long> second = executor.submit(() -> profileRepository.deleteAndCountRemaining(
+                    secondProfile.toString(), chatSessionId.toString()));
+            // let the second disconnect start its statement and wait for the lock of the session row
+            Thread.sleep(500);
+            assertThat(second.isDone()).isFalse();
+            commitFirst.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(second.get(10, TimeUnit.SECONDS)).isZero();
+        } finally {
+            commitFirst.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
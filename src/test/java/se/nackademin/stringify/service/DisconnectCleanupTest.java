@@ -0,0 +1,153 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.cache.WebSocketSessionIndex;
+import se.nackademin.stringify.configuration.SessionCleanupProperties;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.exception.ProfileNotFoundException;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class DisconnectCleanupTest {
+
+    @Mock
+    LiveCommunicationService liveCommunicationService;
+
+    private SessionCleanupProperties properties;
+    private WebSocketSessionIndex webSocketSessionIndex;
+    private DisconnectCleanup disconnectCleanup;
+    private UUID chatSessionGuid;
+    private Profile profile;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SessionCleanupProperties();
+        properties.setGracePeriod(Duration.ZERO);
+        webSocketSessionIndex = new WebSocketSessionIndex();
+        disconnectCleanup = new DisconnectCleanup(properties, webSocketSessionIndex, liveCommunicationService);
+        chatSessionGuid = UUID.randomUUID();
+        profile = MockData.getMockProfileEntity();
+    }
+
+    private static SessionDisconnectEvent disconnectEvent(String sessionId) {
+        return new SessionDisconnectEvent(new Object(), MessageBuilder.withPayload(new byte[0]).build(),
+                sessionId, CloseStatus.GOING_AWAY);
+    }
+
+    @DisplayName("A profile whose connection was dropped should be removed")
+    @Test
+    void droppedProfileShouldBeRemoved() {
+        disconnectCleanup.profileConnected("session-1", chatSessionGuid, profile);
+
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+        disconnectCleanup.removeDropped();
+
+        then(liveCommunicationService).should(times(1)).removeProfileDisconnected(chatSessionGuid, profile);
+        assertThat(webSocketSessionIndex.size()).isZero();
+        assertThat(disconnectCleanup.size()).isZero();
+    }
+
+    @DisplayName("A profile that disconnected explicitly should not be removed again")
+    @Test
+    void explicitlyDisconnectedProfileShouldNotBeRemovedAgain() {
+        disconnectCleanup.profileConnected("session-1", chatSessionGuid, profile);
+
+        disconnectCleanup.profileDisconnected("session-1", profile.getGuid());
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+        disconnectCleanup.removeDropped();
+
+        then(liveCommunicationService).shouldHaveNoInteractions();
+    }
+
+    @DisplayName("A profile that reconnects within the grace period should be kept")
+    @Test
+    void reconnectedProfileShouldBeKept() {
+        properties.setGracePeriod(Duration.ofMinutes(1));
+        disconnectCleanup.profileConnected("session-1", chatSessionGuid, profile);
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+
+        disconnectCleanup.removeDropped();
+        assertThat(disconnectCleanup.size()).isEqualTo(1);
+
+        disconnectCleanup.profileConnected("session-2", chatSessionGuid, profile);
+        properties.setGracePeriod(Duration.ZERO);
+        disconnectCleanup.removeDropped();
+
+        then(liveCommunicationService).shouldHaveNoInteractions();
+        assertThat(disconnectCleanup.size()).isZero();
+        assertThat(webSocketSessionIndex.size()).isEqualTo(1);
+    }
+
+    @DisplayName("Dropped profiles should be removed at most a batch at a time")
+    @Test
+    void droppedProfilesShouldBeRemovedInBatches() {
+        properties.setBatchSize(2);
+        for (int i = 0; i < 5; i++) {
+            disconnectCleanup.profileConnected("session-" + i, chatSessionGuid, MockData.getMockProfileEntity());
+            disconnectCleanup.onSessionDisconnect(disconnectEvent("session-" + i));
+        }
+
+        disconnectCleanup.removeDropped();
+
+        then(liveCommunicationService).should(times(2)).removeProfileDisconnected(any(), any());
+        assertThat(disconnectCleanup.size()).isEqualTo(3);
+    }
+
+    @DisplayName("A profile that has already left should be forgotten")
+    @Test
+    void profileThatAlreadyLeftShouldBeForgotten() {
+        given(liveCommunicationService.removeProfileDisconnected(chatSessionGuid, profile))
+                .willThrow(new ProfileNotFoundException("Could not find a profile"));
+        disconnectCleanup.profileConnected("session-1", chatSessionGuid, profile);
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+
+        disconnectCleanup.removeDropped();
+
+        assertThat(disconnectCleanup.size()).isZero();
+    }
+
+    @DisplayName("A failed removal should be retried on the next run")
+    @Test
+    void failedRemovalShouldBeRetried() {
+        given(liveCommunicationService.removeProfileDisconnected(chatSessionGuid, profile))
+                .willThrow(new QueryTimeoutException("timeout"))
+                .willReturn(null);
+        disconnectCleanup.profileConnected("session-1", chatSessionGuid, profile);
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+
+        disconnectCleanup.removeDropped();
+        assertThat(disconnectCleanup.size()).isEqualTo(1);
+
+        disconnectCleanup.removeDropped();
+        then(liveCommunicationService).should(times(2)).removeProfileDisconnected(chatSessionGuid, profile);
+        assertThat(disconnectCleanup.size()).isZero();
+    }
+
+    @DisplayName("A closed session without a profile should be ignored")
+    @Test
+    void unboundSessionShouldBeIgnored() {
+        disconnectCleanup.onSessionDisconnect(disconnectEvent("session-1"));
+        disconnectCleanup.removeDropped();
+
+        then(liveCommunicationService).should(never()).removeProfileDisconnected(any(), any());
+    }
+}
@@ -0,0 +1,161 @@
+package se.nackademin.stringify.service;
+
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.nackademin.stringify.configuration.InvitationProperties;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvitationDispatcherTest {
+
+    private final List<Mail> delivered = new CopyOnWriteArrayList<>();
+    private InvitationProperties properties;
+    private InvitationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new InvitationProperties();
+        properties.setLingerTime(Duration.ofMillis(100));
+        properties.setInitialBackoff(Duration.ofMillis(10));
+        properties.setMaxBackoff(Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null)
+            dispatcher.stop();
+    }
+
+    @DisplayName("Invitations queued close together should be sent as a single mail")
+    @Test
+    void invitationsShouldBeCoalescedIntoOneMail() {
+        dispatcher = startDispatcher(mail -> {
+            delivered.add(mail);
+            return 202;
+        });
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(dispatcher.dispatch(invitation(i))).isTrue();
+        }
+        dispatcher.stop();
+
+        assertThat(delivered).hasSize(1);
+        assertThat(delivered.get(0).getPersonalization()).hasSize(5);
+        assertThat(delivered.get(0).getTemplateId()).isEqualTo(properties.getTemplateId());
+        assertThat(dispatcher.getSent()).isEqualTo(5);
+    }
+
+    @DisplayName("No mail should hold more invitations than the batch size")
+    @Test
+    void mailsShouldNotExceedBatchSize() {
+        properties.setBatchSize(2);
+        dispatcher = startDispatcher(mail -> {
+            delivered.add(mail);
+            return 202;
+        });
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(invitation(i));
+        }
+        dispatcher.stop();
+
+        assertThat(delivered).allSatisfy(mail -> assertThat(mail.getPersonalization()).hasSizeLessThanOrEqualTo(2));
+        assertThat(delivered.stream().mapToInt(mail -> mail.getPersonalization().size()).sum()).isEqualTo(5);
+    }
+
+    @DisplayName("A mail failing with a server error should be retried until it is sent")
+    @Test
+    void failedMailShouldBeRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        dispatcher = startDispatcher(mail -> {
+            if (attempts.incrementAndGet() < 3)
+                throw new IOException("Service unavailable");
+            delivered.add(mail);
+            return 202;
+        });
+
+        dispatcher.dispatch(invitation(0));
+        awaitSent(1);
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(dispatcher.getRetried()).isEqualTo(2);
+        assertThat(dispatcher.getFailed()).isZero();
+    }
+
+    @DisplayName("A mail rejected by the provider should not be retried")
+    @Test
+    void rejectedMailShouldNotBeRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        dispatcher = startDispatcher(mail -> {
+            attempts.incrementAndGet();
+            return 400;
+        });
+
+        dispatcher.dispatch(invitation(0));
+        dispatcher.stop();
+
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(dispatcher.getFailed()).isEqualTo(1);
+    }
+
+    @DisplayName("A rejected batch should be split so that only the rejected invitations are dropped")
+    @Test
+    void rejectedBatchShouldOnlyDropRejectedInvitations() throws InterruptedException {
+        dispatcher = startDispatcher(mail -> {
+            boolean invalid = mail.getPersonalization().stream()
+                    .anyMatch(personalization -> personalization.getTos().get(0).getEmail().startsWith("guest2"));
+            if (invalid)
+                return 400;
+            delivered.add(mail);
+            return 202;
+        });
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(invitation(i));
+        }
+        awaitSent(4);
+
+        assertThat(dispatcher.getFailed()).isEqualTo(1);
+        assertThat(dispatcher.getRetried()).isZero();
+    }
+
+    @DisplayName("Invitations should be refused when the dispatcher is not running")
+    @Test
+    void invitationsShouldBeRefusedWhenNotRunning() {
+        dispatcher = new InvitationDispatcher(properties, mail -> 202);
+
+        assertThat(dispatcher.dispatch(invitation(0))).isFalse();
+    }
+
+    private InvitationDispatcher startDispatcher(MailTransport transport) {
+        InvitationDispatcher invitationDispatcher = new InvitationDispatcher(properties, transport);
+        invitationDispatcher.start();
+        return invitationDispatcher;
+    }
+
+    private void awaitSent(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatcher.getSent() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(dispatcher.getSent()).isEqualTo(expected);
+    }
+
+    private Personalization invitation(int i) {
+        Personalization personalization = new Personalization();
+        personalization.addTo(new Email("guest" + i + "@example.com"));
+        personalization.addDynamicTemplateData("INVITED_BY", "John Doe");
+        return personalization;
+    }
+}
@@ -0,0 +1,84 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import se.nackademin.stringify.configuration.ClusterProperties;
+import se.nackademin.stringify.repository.ChatSessionRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class KeyAllocatorTest {
+
+    @Mock
+    ChatSessionRepository chatSessionRepository;
+
+    @Spy
+    ClusterProperties clusterProperties = new ClusterProperties();
+
+    @InjectMocks
+    KeyAllocator keyAllocator;
+
+    @DisplayName("Keys stored in the database should be claimed on startup")
+    @Test
+    void storedKeysShouldBeClaimed() {
+        given(chatSessionRepository.findAllKeys()).willReturn(List.of("ABC412"));
+
+        keyAllocator.loadAllocatedKeys();
+
+        assertThat(keyAllocator.isAllocated("ABC412")).isTrue();
+    }
+
+    @DisplayName("Concurrent allocation should never hand out the same key twice")
+    @Test
+    void concurrentAllocationShouldNeverReturnDuplicates() throws InterruptedException {
+        final int threads = 8;
+        final int keysPerThread = 25_000;
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < keysPerThread; i++) {
+                    keys.add(keyAllocator.allocate().toString());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(keys).hasSize(threads * keysPerThread);
+    }
+
+    @DisplayName("A released key should no longer be allocated")
+    @Test
+    void releasedKeyShouldNoLongerBeAllocated() {
+        String key = keyAllocator.allocate().toString();
+
+        keyAllocator.release(key);
+
+        assertThat(keyAllocator.isAllocated(key)).isFalse();
+    }
+}
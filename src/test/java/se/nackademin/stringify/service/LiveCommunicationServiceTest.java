@@ -1,28 +1,40 @@
 package se.nackademin.stringify.service;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.RecentMessageCache;
 import se.nackademin.stringify.controller.response.ConnectionNotice;
 import se.nackademin.stringify.domain.ChatSession;
 import se.nackademin.stringify.domain.Message;
 import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.exception.ConnectionLimitException;
 import se.nackademin.stringify.exception.ProfileNotFoundException;
 import se.nackademin.stringify.repository.ChatSessionRepository;
 import se.nackademin.stringify.repository.MessageRepository;
 import se.nackademin.stringify.repository.ProfileRepository;
+import se.nackademin.stringify.util.TimeOrderedUuid;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.times;
@@ -42,6 +54,30 @@ class LiveCommunicationServiceTest {
     @Mock
     ProfileRepository profileRepository;
 
+    @Mock
+    MessageWriteBehindQueue messageWriteBehindQueue;
+
+    @Mock
+    ActiveSessionRegistry activeSessionRegistry;
+
+    @Mock
+    RecentMessageCache recentMessageCache;
+
+    @Mock
+    KeyAllocator keyAllocator;
+
+    @Mock
+    AdmissionControl admissionControl;
+
+    @Mock
+    NoticeOutbox noticeOutbox;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
     @Test
     void nonExistingChatSessionShouldThrowChatSessionNotFoundException() {
         given(chatSessionRepository.findByGuid(any())).willReturn(Optional.empty());
@@ -54,14 +90,37 @@ class LiveCommunicationServiceTest {
         Message mockedMessage = MockData.getMockMessageEntity();
         given(chatSessionRepository.findByGuid(any(UUID.class)))
                 .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
-        given(messageRepository.save(any(Message.class))).willReturn(mockedMessage);
+        given(messageRepository.save(any(Message.class))).willAnswer(invocation -> {
+            Message saved = invocation.getArgument(0);
+            assertThat(saved.getId()).as("id generated on persist").isNull();
+            saved.setId(TimeOrderedUuid.generate());
+            return saved;
+        });
 
         mockedMessage.setId(null);
-        Message message = liveCommunicationService.storeMessage(UUID.randomUUID(), mockedMessage);
+        MessageDto message = liveCommunicationService.storeMessage(UUID.randomUUID(), mockedMessage);
         then(chatSessionRepository).should().findByGuid(any(UUID.class));
 
-        assertThat(message.getId()).isNotNull();
-        assertThat(message.getChatSession()).isNotNull();
+        assertThat(mockedMessage.getId()).isNotNull();
+        assertThat(mockedMessage.getChatSession()).isNotNull();
+        assertThat(message.getGuid()).isEqualTo(mockedMessage.getGuid());
+    }
+
+    @Test
+    void writeBehindShouldBufferMessageInsteadOfSavingIt() {
+        Message mockedMessage = MockData.getMockMessageEntity();
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        given(messageWriteBehindQueue.isEnabled()).willReturn(true);
+
+        MessageDto message = liveCommunicationService.storeMessage(UUID.randomUUID(), mockedMessage);
+
+        then(messageWriteBehindQueue).should().enqueue(mockedMessage);
+        then(messageRepository).should(times(0)).save(any());
+        then(recentMessageCache).should().append(any(UUID.class), eq(message));
+        assertThat(mockedMessage.getId()).isNotNull();
+        assertThat(message.getGuid()).isNotNull();
+        assertThat(message.getDate()).isNotNull();
     }
 
     @Test
@@ -86,6 +145,8 @@ class LiveCommunicationServiceTest {
         Profile mockProfile = MockData.getMockProfileEntity();
         given(profileRepository.findByGuid(any(UUID.class)))
                 .willReturn(Optional.empty());
+        given(admissionControl.admit(any(ChatSession.class))).willReturn(true);
+        given(chatSessionRepository.incrementConnectedCount(any(), anyInt())).willReturn(1);
         given(profileRepository.save(any(Profile.class)))
                 .willReturn(mockProfile);
         given(messageRepository.save(any())).willReturn(MockData.getMockMessageEntity());
@@ -93,58 +154,203 @@ class LiveCommunicationServiceTest {
                 storeProfileConnected(UUID.randomUUID(), mockProfile);
 
         then(profileRepository).should(times(1)).save(any());
+        then(chatSessionRepository).should(times(1)).incrementConnectedCount(any(), anyInt());
+    }
+
+    @Test
+    void connectionNoticeShouldBeAppendedToOutbox() {
+        UUID chatSessionGuid = UUID.randomUUID();
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(mockProfile));
+        given(messageRepository.save(any())).willReturn(MockData.getMockMessageEntity());
+
+        ConnectionNotice connectionNotice = liveCommunicationService.storeProfileConnected(chatSessionGuid, mockProfile);
+
+        then(noticeOutbox).should(times(1)).append("/queue/connect/" + chatSessionGuid, connectionNotice);
+    }
+
+    @Test
+    void nonExistingProfileShouldNotBeSavedWhenChatSessionIsFull() {
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.empty());
+        given(admissionControl.admit(any(ChatSession.class))).willReturn(false);
+
+        assertThatThrownBy(() -> liveCommunicationService.storeProfileConnected(UUID.randomUUID(), mockProfile))
+                .isInstanceOf(ConnectionLimitException.class);
+
+        then(profileRepository).should(times(0)).save(any());
+        then(chatSessionRepository).should(times(0)).incrementConnectedCount(any(), anyInt());
+    }
+
+    @Test
+    void nonExistingProfileShouldNotBeSavedWhenStoredConnectionCountIsFull() {
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.empty());
+        given(admissionControl.admit(any(ChatSession.class))).willReturn(true);
+        given(chatSessionRepository.incrementConnectedCount(any(), anyInt())).willReturn(0);
+
+        assertThatThrownBy(() -> liveCommunicationService.storeProfileConnected(UUID.randomUUID(), mockProfile))
+                .isInstanceOf(ConnectionLimitException.class);
+
+        then(profileRepository).should(times(0)).save(any());
+    }
+
+    @Test
+    void admittedSlotShouldBeReleasedWhenConnectionRollsBack() {
+        UUID chatSessionGuid = UUID.randomUUID();
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.empty());
+        given(admissionControl.admit(any(ChatSession.class))).willReturn(true);
+        given(chatSessionRepository.incrementConnectedCount(any(), anyInt())).willReturn(1);
+        given(profileRepository.save(any(Profile.class)))
+                .willThrow(new DataIntegrityViolationException("duplicate"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThatThrownBy(() -> liveCommunicationService.storeProfileConnected(chatSessionGuid, mockProfile))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        then(admissionControl).should(times(0)).release(any());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        then(admissionControl).should(times(1)).release(chatSessionGuid);
+    }
+
+    @Test
+    void connectedProfileShouldOnlyBeRegisteredAfterCommit() {
+        UUID chatSessionGuid = UUID.randomUUID();
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(mockProfile));
+        given(messageRepository.save(any())).willReturn(MockData.getMockMessageEntity());
+        TransactionSynchronizationManager.initSynchronization();
+
+        liveCommunicationService.storeProfileConnected(chatSessionGuid, mockProfile);
+        then(activeSessionRegistry).should(times(0)).profileConnected(any(), any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        then(activeSessionRegistry).should(times(1)).profileConnected(chatSessionGuid, mockProfile.getGuid());
+    }
+
+    @Test
+    void connectedProfileShouldNotBeRegisteredWhenConnectionRollsBack() {
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(MockData.getMockChatSessionEntity()));
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(mockProfile));
+        given(messageRepository.save(any())).willThrow(new DataIntegrityViolationException("notice"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThatThrownBy(() -> liveCommunicationService.storeProfileConnected(UUID.randomUUID(), mockProfile))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        then(activeSessionRegistry).should(times(0)).profileConnected(any(), any());
     }
 
     @Test
     void nonExistingProfileShouldThrowProfileNotFoundException() {
-        given(profileRepository.findAllByGuidAndChatSession_Guid(any(), any()))
-                .willThrow(ProfileNotFoundException.class);
+        ChatSession mockChatSession = MockData.getMockChatSessionEntity();
+        mockChatSession.setId(UUID.randomUUID());
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(mockChatSession));
+        given(profileRepository.deleteAndCountRemaining(anyString(), anyString())).willReturn(-1L);
 
-        assertThatThrownBy(() -> liveCommunicationService.removeProfileDisconnected(UUID.randomUUID(), new Profile()));
+        assertThatThrownBy(() -> liveCommunicationService.removeProfileDisconnected(UUID.randomUUID(), new Profile()))
+                .isInstanceOf(ProfileNotFoundException.class);
+
+        then(chatSessionRepository).should(times(0)).deleteInBulkById(any());
+        then(admissionControl).should(times(0)).release(any());
+    }
+
+    @Test
+    void profileWithoutGuidShouldThrowProfileNotFoundException() {
+        Profile profile = new Profile();
+        profile.setGuid(null);
+
+        assertThatThrownBy(() -> liveCommunicationService.removeProfileDisconnected(UUID.randomUUID(), profile))
+                .isInstanceOf(ProfileNotFoundException.class);
+
+        then(profileRepository).shouldHaveNoInteractions();
     }
 
     @Test
     void chatSessionWithMoreThanOneConnectedProfileShouldReturnConnectionNotice() {
         ChatSession mockChatSession = MockData.getMockChatSessionEntity();
+        mockChatSession.setId(UUID.randomUUID());
         Profile mockProfile = MockData.getMockProfileEntity();
-        List<Profile> mockProfiles = new ArrayList<>();
-        mockProfiles.add(mockProfile);
-        mockProfiles.add(new Profile());
-        mockChatSession.setProfilesConnected(mockProfiles);
 
-        given(profileRepository.findAllByGuidAndChatSession_Guid(any(), any()))
-                .willReturn(Optional.of(mockProfile));
         given(chatSessionRepository.findByGuid(any(UUID.class)))
                 .willReturn(Optional.of(mockChatSession));
+        given(profileRepository.deleteAndCountRemaining(mockProfile.getGuid().toString(),
+                mockChatSession.getId().toString())).willReturn(1L);
         given(messageRepository.save(any())).willReturn(MockData.getMockMessageEntity());
 
         ConnectionNotice connectionNotice = liveCommunicationService
-                .removeProfileDisconnected(UUID.randomUUID(), MockData.getMockProfileEntity());
-        then(profileRepository).should(times(1)).deleteById(any());
-        then(chatSessionRepository).should(times(0)).deleteById(any());
+                .removeProfileDisconnected(UUID.randomUUID(), mockProfile);
+        then(chatSessionRepository).should(times(0)).deleteInBulkById(any());
         then(messageRepository).should(times(1)).save(any());
+        then(noticeOutbox).should(times(1)).append(startsWith("/queue/disconnect/"), eq(connectionNotice));
 
         assertThat(connectionNotice).isNotNull();
     }
 
+    @Test
+    void disconnectedSlotShouldOnlyBeReleasedAfterCommit() {
+        UUID chatSessionGuid = UUID.randomUUID();
+        ChatSession mockChatSession = MockData.getMockChatSessionEntity();
+        mockChatSession.setId(UUID.randomUUID());
+        Profile mockProfile = MockData.getMockProfileEntity();
+
+        given(chatSessionRepository.findByGuid(any(UUID.class)))
+                .willReturn(Optional.of(mockChatSession));
+        given(profileRepository.deleteAndCountRemaining(anyString(), anyString())).willReturn(1L);
+        given(messageRepository.save(any())).willReturn(MockData.getMockMessageEntity());
+        TransactionSynchronizationManager.initSynchronization();
+
+        liveCommunicationService.removeProfileDisconnected(chatSessionGuid, mockProfile);
+        then(admissionControl).should(times(0)).release(any());
+        then(activeSessionRegistry).should(times(0)).profileDisconnected(any(), any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        then(admissionControl).should(times(1)).release(chatSessionGuid);
+        then(activeSessionRegistry).should(times(1)).profileDisconnected(chatSessionGuid, mockProfile.getGuid());
+    }
+
     @Test
     void chatSessionWithOneProfileConnectedShouldBeDeletedOnDisconnectAndReturnNull() {
         ChatSession mockChatSession = MockData.getMockChatSessionEntity();
+        mockChatSession.setId(UUID.randomUUID());
         Profile mockProfile = MockData.getMockProfileEntity();
-        List<Profile> mockProfiles = new ArrayList<>();
-        mockProfiles.add(mockProfile);
-        mockChatSession.setProfilesConnected(mockProfiles);
 
-        given(profileRepository.findAllByGuidAndChatSession_Guid(any(), any()))
-                .willReturn(Optional.of(mockProfile));
         given(chatSessionRepository.findByGuid(any(UUID.class)))
                 .willReturn(Optional.of(mockChatSession));
+        given(profileRepository.deleteAndCountRemaining(anyString(), anyString())).willReturn(0L);
 
         ConnectionNotice connectionNotice = liveCommunicationService
-                .removeProfileDisconnected(UUID.randomUUID(), MockData.getMockProfileEntity());
-        then(profileRepository).should(times(1)).deleteById(any());
-        then(chatSessionRepository).should(times(1)).deleteById(any());
+                .removeProfileDisconnected(UUID.randomUUID(), mockProfile);
+        then(messageRepository).should(times(1)).deleteAllInBulkByChatSessionId(mockChatSession.getId());
+        then(profileRepository).should(times(1)).deleteAllInBulkByChatSessionId(mockChatSession.getId());
+        then(chatSessionRepository).should(times(1)).deleteInBulkById(mockChatSession.getId());
+        then(chatSessionRepository).should(times(0)).deleteById(any());
         then(messageRepository).should(times(0)).save(any());
+        then(keyAllocator).should(times(1)).release(mockChatSession.getKey());
+        then(noticeOutbox).shouldHaveNoInteractions();
 
         assertThat(connectionNotice).isNull();
     }
@@ -0,0 +1,97 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.controller.response.Meeting;
+import se.nackademin.stringify.domain.ChatSession;
+import se.nackademin.stringify.domain.Profile;
+import se.nackademin.stringify.repository.ChatSessionRepository;
+import se.nackademin.stringify.repository.ProfileRepository;
+import se.nackademin.stringify.util.Key;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class MeetingServiceTest {
+
+    @InjectMocks
+    MeetingService meetingService;
+
+    @Mock
+    ChatSessionRepository chatSessionRepository;
+
+    @Mock
+    ProfileRepository profileRepository;
+
+    @Mock
+    ActiveSessionRegistry activeSessionRegistry;
+
+    @Mock
+    RecentMessageCache recentMessageCache;
+
+    @Mock
+    KeyAllocator keyAllocator;
+
+    @Mock
+    AdmissionControl admissionControl;
+
+    @Test
+    void collidingKeyShouldBeReleasedAndReplaced() {
+        Key collidingKey = Key.generate();
+        Key freeKey = Key.generate();
+        given(keyAllocator.allocate()).willReturn(collidingKey, freeKey);
+        List<UUID> savedIds = new ArrayList<>();
+        given(chatSessionRepository.save(any(ChatSession.class)))
+                .willAnswer(invocation -> {
+                    ChatSession chatSession = invocation.getArgument(0);
+                    savedIds.add(chatSession.getId());
+                    chatSession.setId(UUID.randomUUID());
+                    throw new DataIntegrityViolationException("uk_chatsession_key");
+                })
+                .willAnswer(invocation -> {
+                    ChatSession chatSession = invocation.getArgument(0);
+                    savedIds.add(chatSession.getId());
+                    return chatSession;
+                });
+        Profile mockProfile = MockData.getMockProfileEntity();
+        given(profileRepository.save(any(Profile.class))).willReturn(mockProfile);
+
+        Meeting meeting = meetingService.createNewMeeting(mockProfile);
+
+        assertThat(meeting.getChatSession().getKey()).isEqualTo(freeKey.toString());
+        assertThat(savedIds).containsExactly(null, null);
+        then(keyAllocator).should(times(1)).release(collidingKey.toString());
+        then(keyAllocator).should(times(0)).release(freeKey.toString());
+    }
+
+    @Test
+    void everyCollidingKeyShouldBeReleasedWhenAttemptsRunOut() {
+        given(keyAllocator.allocate()).willAnswer(invocation -> Key.generate());
+        given(chatSessionRepository.save(any(ChatSession.class)))
+                .willThrow(new DataIntegrityViolationException("uk_chatsession_key"));
+
+        assertThatThrownBy(() -> meetingService.createNewMeeting(MockData.getMockProfileEntity()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        then(chatSessionRepository).should(times(3)).save(any(ChatSession.class));
+        then(keyAllocator).should(times(3)).release(any());
+        then(profileRepository).shouldHaveNoInteractions();
+    }
+}
@@ -0,0 +1,105 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import se.nackademin.stringify.AbstractIntegrationTest;
+import se.nackademin.stringify.repository.MessageRepository;
+import se.nackademin.stringify.util.DateUtil;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.sessions.retention.max-age=30d")
+class MessagePartitionMaintainerTest extends AbstractIntegrationTest {
+
+    /**
+     * The newest page of the history, as read by {@code MessageService.getMessagesBefore()}.
+     */
+    private static final String EXPLAIN_NEWEST_PAGE = "EXPLAIN SELECT * FROM message " +
+            "WHERE chat_session_id = ? AND date >= ? ORDER BY date DESC, guid DESC LIMIT 10";
+    private static final String EXPLAIN_UNBOUNDED_PAGE = "EXPLAIN SELECT * FROM message " +
+            "WHERE chat_session_id = ? ORDER BY date DESC, guid DESC LIMIT 10";
+
+    @Autowired
+    MessagePartitionMaintainer messagePartitionMaintainer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private static String plan(List<String> rows) {
+        return String.join("\n", rows);
+    }
+
+    @DisplayName("Partitions should exist for today and the configured days ahead")
+    @Test
+    void partitionsShouldBeCreatedAhead() {
+        messagePartitionMaintainer.maintain();
+
+        LocalDate today = LocalDate.now();
+        assertThat(messagePartitionMaintainer.findPartitions()).contains(today, today.plusDays(7));
+    }
+
+    @DisplayName("Partitions whose messages are older than the retention should be dropped")
+    @Test
+    void expiredPartitionsShouldBeDropped() {
+        LocalDate expired = LocalDate.now().minusDays(40);
+        LocalDate retained = LocalDate.now().minusDays(20);
+        messagePartitionMaintainer.createPartition(expired);
+        messagePartitionMaintainer.createPartition(retained);
+
+        messagePartitionMaintainer.maintain();
+
+        assertThat(messagePartitionMaintainer.findPartitions())
+                .doesNotContain(expired)
+                .contains(retained, LocalDate.now());
+    }
+
+    @DisplayName("Partitions a remaining chat session can have messages in should be kept")
+    @Test
+    void partitionsOfRemainingSessionShouldBeKept() {
+        LocalDate beforeSession = LocalDate.now().minusDays(40);
+        LocalDate sessionCreated = LocalDate.now().minusDays(35);
+        LocalDate afterSession = LocalDate.now().minusDays(33);
+        messagePartitionMaintainer.createPartition(beforeSession);
+        messagePartitionMaintainer.createPartition(sessionCreated);
+        messagePartitionMaintainer.createPartition(afterSession);
+        UUID chatSessionId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO chatsession (id, guid, created, connected_count) VALUES (?, ?, ?, 1)",
+                chatSessionId, UUID.randomUUID(), Timestamp.valueOf(sessionCreated.atTime(12, 0)));
+
+        try {
+            messagePartitionMaintainer.maintain();
+
+            assertThat(messagePartitionMaintainer.findPartitions())
+                    .doesNotContain(beforeSession)
+                    .contains(sessionCreated, afterSession);
+        } finally {
+            jdbcTemplate.update("DELETE FROM chatsession WHERE id = ?", chatSessionId);
+        }
+    }
+
+    @DisplayName("History reads should only scan the partitions since the creation of the chat session")
+    @Test
+    void historyReadsShouldPrunePartitionsBeforeChatSession() {
+        LocalDate older = LocalDate.now().minusDays(3);
+        messagePartitionMaintainer.createPartition(older);
+        messagePartitionMaintainer.maintain();
+        UUID chatSessionId = UUID.randomUUID();
+        Timestamp since = MessageRepository.earliestMessageDate(DateUtil.now());
+
+        String bounded = plan(jdbcTemplate.queryForList(EXPLAIN_NEWEST_PAGE, String.class, chatSessionId, since));
+        String unbounded = plan(jdbcTemplate.queryForList(EXPLAIN_UNBOUNDED_PAGE, String.class, chatSessionId));
+
+        assertThat(bounded)
+                .contains(MessagePartitionMaintainer.partitionName(LocalDate.now()))
+                .doesNotContain(MessagePartitionMaintainer.partitionName(older));
+        assertThat(unbounded).contains(MessagePartitionMaintainer.partitionName(older));
+    }
+}
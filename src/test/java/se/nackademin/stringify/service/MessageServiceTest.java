@@ -6,19 +6,33 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.domain.ChatSession;
 import se.nackademin.stringify.domain.Message;
+import se.nackademin.stringify.dto.MessageDto;
 import se.nackademin.stringify.exception.ChatSessionNotFoundException;
 import se.nackademin.stringify.repository.ChatSessionRepository;
 import se.nackademin.stringify.repository.MessageRepository;
 import se.nackademin.stringify.util.DateUtil;
+import se.nackademin.stringify.util.MessageCursor;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.times;
@@ -32,12 +46,30 @@ class MessageServiceTest {
     @Mock
     ChatSessionRepository chatSessionRepository;
 
+    @Mock
+    ActiveSessionRegistry activeSessionRegistry;
+
+    @Mock
+    RecentMessageCache recentMessageCache;
+
+    @Mock
+    EntityManager entityManager;
+
     @InjectMocks
     MessageService messageService;
+
+    private static ChatSession chatSession(UUID id) {
+        return ChatSession.builder()
+                .id(id)
+                .guid(UUID.randomUUID())
+                .created(Timestamp.valueOf("2021-01-01 11:00:00"))
+                .build();
+    }
+
     @DisplayName("Non existent chatSession should throw ChatSessionNotFoundException")
     @Test
     void testGetMessageThrowsException() {
-        given(chatSessionRepository.existsByGuid(any(UUID.class))).willReturn(false);
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> messageService.getMessage(UUID.randomUUID(), 0))
                 .isInstanceOf(ChatSessionNotFoundException.class);
@@ -53,13 +85,154 @@ class MessageServiceTest {
             mockMessages.add(message);
         }
 
-        given(chatSessionRepository.existsByGuid(any(UUID.class))).willReturn(true);
-        given(messageRepository.findAllByChatSession_Guid(any(UUID.class), any())).willReturn(mockMessages);
+        UUID chatSessionId = UUID.randomUUID();
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+        given(messageRepository.findAllByChatSession_IdAndDateGreaterThanEqual(eq(chatSessionId), any(), any()))
+                .willReturn(mockMessages);
 
         List<Message> message = messageService.getMessage(UUID.randomUUID(), 0);
 
-        then(messageRepository).should(times(1)).findAllByChatSession_Guid(any(), any());
+        then(messageRepository).should(times(1))
+                .findAllByChatSession_IdAndDateGreaterThanEqual(eq(chatSessionId), any(), any());
 
         assertThat(message).isNotEmpty();
     }
+
+    @DisplayName("Without a cursor the newest messages should be fetched in ascending order")
+    @Test
+    void testGetMessagesBeforeWithoutCursorShouldReturnNewestMessagesAscending() {
+        UUID chatSessionId = UUID.randomUUID();
+        Message newest = Message.builder().guid(UUID.randomUUID()).date(Timestamp.valueOf("2021-01-01 12:01:00")).build();
+        Message oldest = Message.builder().guid(UUID.randomUUID()).date(Timestamp.valueOf("2021-01-01 12:00:00")).build();
+
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+        given(messageRepository.findAllByChatSession_IdAndDateGreaterThanEqualOrderByDateDescGuidDesc(
+                eq(chatSessionId), any(), any()))
+                .willReturn(List.of(newest, oldest));
+
+        List<Message> messages = messageService.getMessagesBefore(UUID.randomUUID(), null, 10);
+
+        assertThat(messages).containsExactly(oldest, newest);
+    }
+
+    @DisplayName("With a cursor the messages before the cursor position should be fetched")
+    @Test
+    void testGetMessagesBeforeWithCursorShouldQueryBeforeCursor() {
+        UUID chatSessionId = UUID.randomUUID();
+        MessageCursor cursor = new MessageCursor(DateUtil.now(), UUID.randomUUID());
+
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+        given(messageRepository.findAllBefore(eq(chatSessionId), any(), eq(cursor.getDate()), eq(cursor.getGuid()),
+                any()))
+                .willReturn(new ArrayList<>());
+
+        assertThat(messageService.getMessagesBefore(UUID.randomUUID(), cursor, 500)).isEmpty();
+
+        then(messageRepository).should().findAllBefore(eq(chatSessionId), any(), any(), any(),
+                eq(PageRequest.of(0, MessageService.MAX_PAGE_SIZE)));
+    }
+
+    @DisplayName("History reads should start shortly before the creation of the chat session")
+    @Test
+    void testGetMessagesBeforeShouldBeBoundedByCreationOfChatSession() {
+        UUID chatSessionId = UUID.randomUUID();
+
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+
+        messageService.getMessagesBefore(UUID.randomUUID(), null, 10);
+
+        then(messageRepository).should().findAllByChatSession_IdAndDateGreaterThanEqualOrderByDateDescGuidDesc(
+                chatSessionId, Timestamp.valueOf("2021-01-01 10:59:00"), PageRequest.of(0, 10));
+    }
+
+    @DisplayName("Reads before a cursor should start shortly before the creation of the chat session")
+    @Test
+    void testGetMessagesBeforeCursorShouldBeBoundedByCreationOfChatSession() {
+        UUID chatSessionId = UUID.randomUUID();
+        MessageCursor cursor = new MessageCursor(DateUtil.now(), UUID.randomUUID());
+
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+
+        messageService.getMessagesBefore(UUID.randomUUID(), cursor, 10);
+
+        then(messageRepository).should().findAllBefore(chatSessionId, Timestamp.valueOf("2021-01-01 10:59:00"),
+                cursor.getDate(), cursor.getGuid(), PageRequest.of(0, 10));
+    }
+
+    @DisplayName("Pages read by offset should start shortly before the creation of the chat session")
+    @Test
+    void testGetMessageShouldBeBoundedByCreationOfChatSession() {
+        UUID chatSessionId = UUID.randomUUID();
+
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.of(chatSession(chatSessionId)));
+
+        messageService.getMessage(UUID.randomUUID(), 2);
+
+        then(messageRepository).should().findAllByChatSession_IdAndDateGreaterThanEqual(eq(chatSessionId),
+                eq(Timestamp.valueOf("2021-01-01 10:59:00")), any());
+    }
+
+    @DisplayName("Cursor pagination of a non existent chatSession should throw ChatSessionNotFoundException")
+    @Test
+    void testGetMessagesBeforeThrowsException() {
+        given(chatSessionRepository.findByGuid(any(UUID.class))).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> messageService.getMessagesBefore(UUID.randomUUID(), null, 10))
+                .isInstanceOf(ChatSessionNotFoundException.class);
+    }
+
+    @DisplayName("Export should write every streamed message in order, detach it and close the stream")
+    @Test
+    void testExportTranscriptShouldWriteAndDetachEveryMessage() throws Exception {
+        UUID chatSessionId = UUID.randomUUID();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            messages.add(Message.builder()
+                    .guid(UUID.randomUUID())
+                    .sender("John Doe")
+                    .content("Hello " + i)
+                    .date(DateUtil.now())
+                    .build());
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        given(messageRepository.streamAllByChatSessionId(eq(chatSessionId), any()))
+                .willReturn(messages.stream().onClose(() -> closed.set(true)));
+
+        List<MessageDto> written = new ArrayList<>();
+        long count = messageService.exportTranscript(chatSessionId, written::add);
+
+        assertThat(count).isEqualTo(3);
+        assertThat(written).extracting(MessageDto::getContent).containsExactly("Hello 0", "Hello 1", "Hello 2");
+        messages.forEach(message -> then(entityManager).should().detach(message));
+        assertThat(closed).isTrue();
+    }
+
+    @DisplayName("Export should start shortly before the creation of the chat session")
+    @Test
+    void testExportTranscriptShouldBeBoundedByCreationOfChatSession() throws Exception {
+        UUID chatSessionId = UUID.randomUUID();
+        given(chatSessionRepository.findCreatedById(chatSessionId))
+                .willReturn(Optional.of(Timestamp.valueOf("2021-01-01 11:00:00")));
+        given(messageRepository.streamAllByChatSessionId(any(UUID.class), any())).willReturn(Stream.empty());
+
+        messageService.exportTranscript(chatSessionId, message -> {
+        });
+
+        then(messageRepository).should()
+                .streamAllByChatSessionId(chatSessionId, Timestamp.valueOf("2021-01-01 10:59:00"));
+    }
+
+    @DisplayName("Export should close the stream when writing fails")
+    @Test
+    void testExportTranscriptShouldCloseStreamOnFailure() {
+        AtomicBoolean closed = new AtomicBoolean();
+        given(messageRepository.streamAllByChatSessionId(any(UUID.class), any()))
+                .willReturn(Stream.of(MockData.getMockMessageEntity()).onClose(() -> closed.set(true)));
+
+        assertThatThrownBy(() -> messageService.exportTranscript(UUID.randomUUID(), message -> {
+            throw new IOException("Broken pipe");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(closed).isTrue();
+    }
 }
@@ -0,0 +1,90 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import se.nackademin.stringify.MockData;
+import se.nackademin.stringify.configuration.WriteBehindProperties;
+import se.nackademin.stringify.domain.Message;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class MessageWriteBehindQueueTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private WriteBehindProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(3);
+        properties.setFlushInterval(Duration.ofMillis(10));
+    }
+
+    @DisplayName("Every buffered message should be written in batches no larger than the batch size")
+    @Test
+    void bufferedMessagesShouldBeWrittenInBatches() {
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger largestBatch = new AtomicInteger();
+        given(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .willAnswer(invocation -> {
+                    Collection<?> batch = invocation.getArgument(1);
+                    written.addAndGet(batch.size());
+                    largestBatch.accumulateAndGet(batch.size(), Math::max);
+                    return new int[0][];
+                });
+
+        MessageWriteBehindQueue queue = new MessageWriteBehindQueue(properties, jdbcTemplate, transactionManager);
+        queue.start();
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(stampedMessage());
+        }
+        queue.stop();
+
+        assertThat(written.get()).isEqualTo(10);
+        assertThat(largestBatch.get()).isLessThanOrEqualTo(3);
+        assertThat(queue.size()).isZero();
+    }
+
+    @DisplayName("A message should be written synchronously when the queue is not running")
+    @Test
+    void messageShouldBeWrittenDirectlyWhenQueueIsNotRunning() {
+        AtomicInteger written = new AtomicInteger();
+        given(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .willAnswer(invocation -> {
+                    written.addAndGet(((Collection<?>) invocation.getArgument(1)).size());
+                    return new int[0][];
+                });
+
+        MessageWriteBehindQueue queue = new MessageWriteBehindQueue(properties, jdbcTemplate, transactionManager);
+        queue.enqueue(stampedMessage());
+
+        assertThat(written.get()).isEqualTo(1);
+        assertThat(queue.size()).isZero();
+    }
+
+    private Message stampedMessage() {
+        Message message = MockData.getMockMessageEntity();
+        message.setChatSession(MockData.getMockChatSessionEntity());
+        return message;
+    }
+}
@@ -0,0 +1,184 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import se.nackademin.stringify.configuration.OutboxProperties;
+import se.nackademin.stringify.controller.response.ConnectionNotice;
+import se.nackademin.stringify.controller.websocket.BroadcastPublisher;
+import se.nackademin.stringify.domain.OutboxNotice;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.dto.ProfileDto;
+import se.nackademin.stringify.repository.OutboxNoticeRepository;
+import se.nackademin.stringify.util.TimeOrderedUuid;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class NoticeOutboxTest {
+
+    @Mock
+    OutboxNoticeRepository outboxNoticeRepository;
+
+    @Mock
+    BroadcastPublisher broadcastPublisher;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private OutboxProperties properties;
+    private NoticeOutbox noticeOutbox;
+    private ConnectionNotice notice;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        noticeOutbox = new NoticeOutbox(properties, outboxNoticeRepository, broadcastPublisher, transactionManager);
+        notice = new ConnectionNotice(ProfileDto.builder().name("John Doe").build(),
+                MessageDto.builder().content("John Doe has connected to the meeting.").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private void givenSavedNotices() {
+        given(broadcastPublisher.encode(notice)).willReturn(new byte[]{1});
+        given(outboxNoticeRepository.save(any(OutboxNotice.class))).willAnswer(invocation -> {
+            OutboxNotice outboxNotice = invocation.getArgument(0);
+            outboxNotice.setId(TimeOrderedUuid.generate());
+            return outboxNotice;
+        });
+    }
+
+    private static OutboxNotice outboxNotice(String destination) {
+        return OutboxNotice.builder()
+                .id(TimeOrderedUuid.generate())
+                .destination(destination)
+                .payload(new byte[]{1})
+                .created(new Timestamp(0))
+                .build();
+    }
+
+    private void givenDeletedNotices() {
+        given(outboxNoticeRepository.deleteByIds(anyCollection()))
+                .willAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+    }
+
+    @DisplayName("A notice should be relayed only after its transaction has committed")
+    @Test
+    void noticeShouldBeRelayedAfterCommit() {
+        givenSavedNotices();
+        TransactionSynchronizationManager.initSynchronization();
+
+        noticeOutbox.append("/queue/connect/a", notice);
+
+        assertThat(noticeOutbox.size()).isZero();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(noticeOutbox.size()).isEqualTo(1);
+    }
+
+    @DisplayName("A notice of a rolled back transaction should not be relayed")
+    @Test
+    void noticeShouldNotBeRelayedAfterRollback() {
+        givenSavedNotices();
+        TransactionSynchronizationManager.initSynchronization();
+
+        noticeOutbox.append("/queue/connect/a", notice);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(noticeOutbox.size()).isZero();
+    }
+
+    @DisplayName("Committed notices should be published and deleted by the relay")
+    @Test
+    void committedNoticesShouldBePublishedAndDeleted() {
+        givenSavedNotices();
+        givenDeletedNotices();
+
+        noticeOutbox.start();
+        for (int i = 0; i < 5; i++) {
+            noticeOutbox.append("/queue/connect/a", notice);
+        }
+        noticeOutbox.stop();
+
+        then(broadcastPublisher).should(times(5)).publish(eq("/queue/connect/a"), any());
+        assertThat(noticeOutbox.size()).isZero();
+    }
+
+    @DisplayName("A notice that could not be published should be kept in the outbox")
+    @Test
+    void unpublishedNoticeShouldBeKept() {
+        OutboxNotice failing = outboxNotice("/queue/connect/a");
+        OutboxNotice published = outboxNotice("/queue/connect/b");
+        willThrow(new MessageDeliveryException("Broker unavailable"))
+                .given(broadcastPublisher).publish(eq("/queue/connect/a"), any());
+        givenDeletedNotices();
+
+        assertThat(noticeOutbox.publish(List.of(failing, published))).isEqualTo(1);
+
+        then(outboxNoticeRepository).should().deleteByIds(List.of(published.getId()));
+    }
+
+    @DisplayName("The sweep should publish stale notices in batches until the outbox is empty")
+    @Test
+    void sweepShouldPublishStaleNoticesInBatches() {
+        given(outboxNoticeRepository.findByCreatedBeforeOrderByIdAsc(any(Timestamp.class), any(Pageable.class)))
+                .willReturn(List.of(outboxNotice("/queue/connect/a"), outboxNotice("/queue/connect/a")))
+                .willReturn(List.of(outboxNotice("/queue/disconnect/a")));
+        givenDeletedNotices();
+
+        noticeOutbox.sweep();
+
+        then(broadcastPublisher).should(times(3)).publish(anyString(), any());
+        then(outboxNoticeRepository).should(times(2)).deleteByIds(anyCollection());
+    }
+
+    @DisplayName("The sweep should stop when published notices cannot be deleted")
+    @Test
+    void sweepShouldStopWhenDeleteFails() {
+        given(outboxNoticeRepository.findByCreatedBeforeOrderByIdAsc(any(Timestamp.class), any(Pageable.class)))
+                .willReturn(List.of(outboxNotice("/queue/connect/a"), outboxNotice("/queue/connect/a")));
+        given(outboxNoticeRepository.deleteByIds(anyCollection())).willThrow(new QueryTimeoutException("timeout"));
+
+        noticeOutbox.sweep();
+
+        then(outboxNoticeRepository).should(times(1))
+                .findByCreatedBeforeOrderByIdAsc(any(Timestamp.class), any(Pageable.class));
+    }
+
+    @DisplayName("An empty outbox should not be deleted from")
+    @Test
+    void emptySweepShouldNotDelete() {
+        given(outboxNoticeRepository.findByCreatedBeforeOrderByIdAsc(any(Timestamp.class), any(Pageable.class)))
+                .willReturn(List.of());
+
+        noticeOutbox.sweep();
+
+        then(outboxNoticeRepository).should(never()).deleteByIds(anyCollection());
+    }
+}
@@ -0,0 +1,138 @@
+package se.nackademin.stringify.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import se.nackademin.stringify.cache.ActiveSessionRegistry;
+import se.nackademin.stringify.cache.AdmissionControl;
+import se.nackademin.stringify.cache.RecentMessageCache;
+import se.nackademin.stringify.configuration.RetentionProperties;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class RetentionReaperTest {
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ActiveSessionRegistry activeSessionRegistry;
+
+    @Mock
+    AdmissionControl admissionControl;
+
+    @Mock
+    RecentMessageCache recentMessageCache;
+
+    @Mock
+    KeyAllocator keyAllocator;
+
+    private RetentionReaper retentionReaper;
+    private UUID id;
+    private UUID guid;
+    private Timestamp since;
+
+    @BeforeEach
+    void setUp() {
+        RetentionProperties properties = new RetentionProperties();
+        properties.setChunkSize(2);
+        properties.setMaxRowsPerSecond(0);
+        retentionReaper = new RetentionReaper(properties, jdbcTemplate, transactionManager, activeSessionRegistry,
+                admissionControl, recentMessageCache, keyAllocator);
+        id = UUID.randomUUID();
+        guid = UUID.randomUUID();
+        since = Timestamp.valueOf("2021-01-01 11:59:00");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenExpiredSession() {
+        given(jdbcTemplate.query(eq(RetentionReaper.FIND_EXPIRED_SESSIONS), any(RowMapper.class), any(), any()))
+                .willReturn(List.of(new RetentionReaper.ExpiredSession(id, guid, "AB12CD", since)));
+    }
+
+    @DisplayName("Messages of an expired chat session should be deleted in chunks before the session itself")
+    @Test
+    void expiredSessionShouldBeDeletedInChunks() {
+        givenExpiredSession();
+        given(jdbcTemplate.update(RetentionReaper.DELETE_MESSAGE_CHUNK, id, since, 2)).willReturn(2, 2, 1);
+        given(jdbcTemplate.update(RetentionReaper.DELETE_SESSION, id, id)).willReturn(1);
+
+        retentionReaper.reapExpired();
+
+        then(jdbcTemplate).should(times(3)).update(RetentionReaper.DELETE_MESSAGE_CHUNK, id, since, 2);
+        then(jdbcTemplate).should(times(1)).update(RetentionReaper.DELETE_SESSION, id, id);
+        then(activeSessionRegistry).should(times(1)).evict(guid);
+        then(admissionControl).should(times(1)).evict(guid);
+        then(recentMessageCache).should(times(1)).evict(guid);
+        then(keyAllocator).should(times(1)).release("AB12CD");
+        assertThat(retentionReaper.getDeletedMessages()).isEqualTo(5);
+        assertThat(retentionReaper.getDeletedSessions()).isEqualTo(1);
+        assertThat(retentionReaper.getChunks()).isEqualTo(3);
+    }
+
+    @DisplayName("An expired chat session that is still registered should be kept")
+    @Test
+    void registeredSessionShouldBeKept() {
+        givenExpiredSession();
+        given(activeSessionRegistry.isRegistered(guid)).willReturn(true);
+
+        retentionReaper.reapExpired();
+
+        then(jdbcTemplate).should(never()).update(eq(RetentionReaper.DELETE_MESSAGE_CHUNK), any(), any(), any());
+        then(jdbcTemplate).should(never()).update(RetentionReaper.DELETE_SESSION, id, id);
+        then(activeSessionRegistry).should(never()).findByGuid(any());
+        then(keyAllocator).shouldHaveNoInteractions();
+        assertThat(retentionReaper.getDeletedSessions()).isZero();
+    }
+
+    @DisplayName("An expired chat session that a profile joined while it was deleted should be kept in memory")
+    @Test
+    void sessionJoinedDuringDeleteShouldBeKept() {
+        givenExpiredSession();
+        given(jdbcTemplate.update(RetentionReaper.DELETE_MESSAGE_CHUNK, id, since, 2)).willReturn(0);
+        given(jdbcTemplate.update(RetentionReaper.DELETE_SESSION, id, id)).willReturn(0);
+
+        retentionReaper.reapExpired();
+
+        then(activeSessionRegistry).should(never()).evict(any());
+        then(keyAllocator).shouldHaveNoInteractions();
+        assertThat(retentionReaper.getDeletedSessions()).isZero();
+    }
+
+    @DisplayName("A chat session whose chunk fails should be kept for the next run")
+    @Test
+    void failedChunkShouldKeepSession() {
+        givenExpiredSession();
+        given(jdbcTemplate.update(RetentionReaper.DELETE_MESSAGE_CHUNK, id, since, 2))
+                .willReturn(2)
+                .willThrow(new QueryTimeoutException("timeout"));
+
+        retentionReaper.reapExpired();
+
+        then(jdbcTemplate).should(never()).update(RetentionReaper.DELETE_SESSION, id, id);
+        then(keyAllocator).shouldHaveNoInteractions();
+        assertThat(retentionReaper.getDeletedMessages()).isEqualTo(2);
+        assertThat(retentionReaper.getDeletedSessions()).isZero();
+    }
+}
@@ -1,16 +1,38 @@
 package se.nackademin.stringify.util;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DateUtilTest {
 
+    private static final TimeZone DEFAULT_TIME_ZONE = TimeZone.getDefault();
+
+    @AfterEach
+    void tearDown() {
+        TimeZone.setDefault(DEFAULT_TIME_ZONE);
+        DateUtil.clearCache();
+    }
+
+    /**
+     * The formatting before the date strings were cached.
+     */
+    private static String legacyDateToString(Timestamp date) {
+        String stringDate = date.toString();
+
+        return stringDate.substring(0, stringDate.lastIndexOf(":"));
+    }
+
     @DisplayName("the given Timestamp object should be converted to an instance of a String")
     @Test
     void dateShouldReturnAStringInstance() {
@@ -34,4 +56,60 @@ class DateUtilTest {
         assertThat(actual).isEqualTo("2020-09-15 15:16");
         assertThat(actual.matches("^[0-9]{4}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1]) (2[0-3]|[01][0-9]):[0-5][0-9]$")).isTrue();
     }
+
+    @DisplayName("Formatted dates should equal the legacy formatting in every time zone and century")
+    @ParameterizedTest
+    @ValueSource(strings = {"UTC", "Europe/Stockholm", "America/New_York", "Asia/Kolkata", "Asia/Kathmandu",
+            "Australia/Lord_Howe", "Europe/Amsterdam", "Africa/Monrovia", "Pacific/Chatham"})
+    void formattedDatesShouldEqualLegacyFormatting(String zone) {
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        DateUtil.clearCache();
+        Random random = new Random(zone.hashCode());
+        long from = Timestamp.valueOf("1000-01-01 00:00:00").getTime();
+        long to = Timestamp.valueOf("3000-01-01 00:00:00").getTime();
+
+        for (int i = 0; i < 100_000; i++) {
+            Timestamp timestamp = new Timestamp(from + (long) (random.nextDouble() * (to - from)));
+
+            assertThat(DateUtil.dateToString(timestamp)).as("%d in %s", timestamp.getTime(), zone)
+                    .isEqualTo(legacyDateToString(timestamp));
+        }
+    }
+
+    @DisplayName("Formatted dates should equal the legacy formatting across daylight saving transitions")
+    @ParameterizedTest
+    @ValueSource(strings = {"Europe/Stockholm", "America/New_York", "Australia/Lord_Howe"})
+    void formattedDatesShouldEqualLegacyFormattingAcrossTransitions(String zone) {
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        DateUtil.clearCache();
+        long from = Timestamp.valueOf("2021-01-01 00:00:00").getTime();
+        long to = Timestamp.valueOf("2022-01-01 00:00:00").getTime();
+
+        for (long millis = from; millis < to; millis += 7_013) {
+            Timestamp timestamp = new Timestamp(millis);
+
+            assertThat(DateUtil.dateToString(timestamp)).as("%d in %s", millis, zone)
+                    .isEqualTo(legacyDateToString(timestamp));
+        }
+    }
+
+    @DisplayName("Dates within the same minute should share the formatted string")
+    @Test
+    void datesWithinSameMinuteShouldShareString() {
+        String first = DateUtil.dateToString(Timestamp.valueOf("2020-09-15 15:16:00.000"));
+        String second = DateUtil.dateToString(Timestamp.valueOf("2020-09-15 15:16:59.999"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(DateUtil.dateToString(Timestamp.valueOf("2020-09-15 15:17:00.000"))).isEqualTo("2020-09-15 15:17");
+    }
+
+    @DisplayName("The string value of now should equal the formatted current time")
+    @Test
+    void stringValueOfNowShouldEqualFormattedNow() {
+        long before = System.currentTimeMillis();
+        String now = DateUtil.stringValueOfNow();
+        long after = System.currentTimeMillis();
+
+        assertThat(now).isIn(legacyDateToString(new Timestamp(before)), legacyDateToString(new Timestamp(after)));
+    }
 }
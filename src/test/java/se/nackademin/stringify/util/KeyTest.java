@@ -96,4 +96,12 @@ class KeyTest {
         assertThat(k1.equals(null)).isFalse();
     }
 
+    @DisplayName("Generated keys should always be valid keys")
+    @Test
+    void generatedKeysShouldAlwaysBeValid() {
+        for (int i = 0; i < 100_000; i++) {
+            String value = Key.generate().toString();
+            assertThat(Key.isValidKey(value)).as(value).isTrue();
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package se.nackademin.stringify.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that {@code Key.isValidKey} accepts exactly the values accepted by the regular expression it
+ * replaced.
+ */
+class KeyValidationTest {
+
+    private static final Pattern LEGACY_PATTERN =
+            Pattern.compile("^(?=.*\\d)(?=.*[A-Z])(?!.*[-,.&/():;_*+><=!?#£$%½{}`´ ])(?!.*[a-z]).{0,6}$");
+
+    /**
+     * Characters the random strings are drawn from: every class the pattern distinguishes, line terminators,
+     * non-ASCII letters and digits and both halves of a surrogate pair.
+     */
+    private static final char[] INTERESTING_CHARACTERS = ("ABCXYZabcxyz0189" +
+            "-,.&/():;_*+><=!?#£$%½{}`´ " +
+            "\t\n\r\u0085\u2028\u2029\013\f" +
+            "@[\\]^|~'\"Ääéß٠३Ａａ😀").toCharArray();
+
+    private static boolean legacyIsValidKey(String value) {
+        if (value.length() != 6)
+            return false;
+
+        return LEGACY_PATTERN.matcher(value).matches();
+    }
+
+    @DisplayName("Every character at every position of a key should be judged like the legacy pattern")
+    @ParameterizedTest
+    @ValueSource(strings = {"AB12CD", "ABCDE1", "12345A", "1AAAAA"})
+    void everyCharacterAtEveryPositionShouldMatchLegacyPattern(String template) {
+        char[] chars = template.toCharArray();
+
+        for (int position = 0; position < chars.length; position++) {
+            for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+                chars[position] = (char) c;
+                String value = new String(chars);
+
+                assertThat(Key.isValidKey(value))
+                        .as("U+%04X at position %d of %s", c, position, template)
+                        .isEqualTo(legacyIsValidKey(value));
+            }
+            chars[position] = template.charAt(position);
+        }
+    }
+
+    @DisplayName("Random strings should be judged like the legacy pattern")
+    @Test
+    void randomStringsShouldMatchLegacyPattern() {
+        Random random = new Random(6);
+
+        for (int i = 0; i < 500_000; i++) {
+            char[] chars = new char[4 + random.nextInt(5)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = INTERESTING_CHARACTERS[random.nextInt(INTERESTING_CHARACTERS.length)];
+            }
+            String value = new String(chars);
+
+            assertThat(Key.isValidKey(value)).as(value).isEqualTo(legacyIsValidKey(value));
+        }
+    }
+
+    @DisplayName("Keys with a line terminator should be invalid")
+    @ParameterizedTest
+    @ValueSource(strings = {"AB12C\n", "\nAB12C", "AB\r12C", "AB12C\u2028", "A\u0085B12C"})
+    void keysWithLineTerminatorShouldBeInvalid(String value) {
+        assertThat(Key.isValidKey(value)).isFalse();
+        assertThat(legacyIsValidKey(value)).isFalse();
+    }
+
+    @DisplayName("Characters outside the pattern's classes should be accepted")
+    @ParameterizedTest
+    @ValueSource(strings = {"AB12C@", "ÄB12CD", "AB12C\t", "AB12C٠"})
+    void otherCharactersShouldBeAccepted(String value) {
+        assertThat(Key.isValidKey(value)).isTrue();
+        assertThat(legacyIsValidKey(value)).isTrue();
+    }
+}
@@ -0,0 +1,79 @@
+package se.nackademin.stringify.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidTest {
+
+    /**
+     * Compares UUIDs byte by byte as unsigned values, the way PostgreSQL orders the uuid type.
+     */
+    private static final Comparator<UUID> BYTE_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @DisplayName("Generated UUIDs should be version 7 with the IETF variant")
+    @Test
+    void generatedUuidShouldHaveVersionAndVariant() {
+        UUID uuid = TimeOrderedUuid.generate();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @DisplayName("Generated UUIDs should embed the current time")
+    @Test
+    void generatedUuidShouldEmbedCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuid.generate();
+        long after = System.currentTimeMillis();
+
+        // a sequence overflow in a burst of earlier tests may have advanced the timestamp past the clock
+        assertThat(TimeOrderedUuid.timestampOf(uuid)).isBetween(before, after + TimeUnit.SECONDS.toMillis(1));
+    }
+
+    @DisplayName("Consecutive UUIDs should be strictly increasing in byte order")
+    @Test
+    void consecutiveUuidsShouldBeIncreasing() {
+        UUID previous = TimeOrderedUuid.generate();
+
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = TimeOrderedUuid.generate();
+            assertThat(BYTE_ORDER.compare(next, previous)).as("%s after %s", next, previous).isPositive();
+            previous = next;
+        }
+    }
+
+    @DisplayName("UUIDs generated concurrently should be unique")
+    @Test
+    void concurrentlyGeneratedUuidsShouldBeUnique() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<UUID>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<UUID> uuids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        uuids.add(TimeOrderedUuid.generate());
+                    }
+                    return uuids;
+                }));
+            }
+
+            Set<UUID> unique = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                unique.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+            assertThat(unique).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
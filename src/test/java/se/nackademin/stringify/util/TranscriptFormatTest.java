@@ -0,0 +1,96 @@
+package se.nackademin.stringify.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import se.nackademin.stringify.dto.MessageDto;
+import se.nackademin.stringify.exception.UnsupportedExportFormatException;
+
+import java.io.StringWriter;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TranscriptFormatTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DisplayName("NDJSON should write every message as a JSON object on its own line")
+    @Test
+    void ndjsonShouldWriteOneObjectPerLine() throws Exception {
+        StringWriter out = new StringWriter();
+        TranscriptWriter writer = TranscriptFormat.NDJSON.writer(out, objectMapper);
+
+        writer.write(message("Hello\nthere"));
+        writer.write(message("General Kenobi"));
+
+        String[] lines = out.toString().split("\n");
+        assertThat(out.toString()).endsWith("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], MessageDto.class).getContent()).isEqualTo("Hello\nthere");
+        assertThat(objectMapper.readValue(lines[1], MessageDto.class).getContent()).isEqualTo("General Kenobi");
+    }
+
+    @DisplayName("NDJSON should leave flushing the response to the caller")
+    @Test
+    void ndjsonShouldNotFlushPerMessage() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        StringWriter out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        TranscriptWriter writer = TranscriptFormat.NDJSON.writer(out, objectMapper);
+
+        writer.write(message("Hello there"));
+        writer.write(message("General Kenobi"));
+
+        assertThat(flushes.get()).isZero();
+        assertThat(out.toString().split("\n")).hasSize(2);
+    }
+
+    @DisplayName("CSV should write a header and quote fields with separators, quotes or line breaks")
+    @Test
+    void csvShouldQuoteSpecialFields() throws Exception {
+        StringWriter out = new StringWriter();
+        TranscriptWriter writer = TranscriptFormat.CSV.writer(out, objectMapper);
+        MessageDto plain = message("Hello there");
+        MessageDto special = message("Say \"hi\", then\nleave");
+
+        writer.write(plain);
+        writer.write(special);
+
+        assertThat(out.toString()).isEqualTo("guid,date,from,avatar,content\r\n" +
+                plain.getGuid() + ",2021-01-01 14:32,John Doe,avatar1,Hello there\r\n" +
+                special.getGuid() + ",2021-01-01 14:32,John Doe,avatar1,\"Say \"\"hi\"\", then\nleave\"\r\n");
+    }
+
+    @DisplayName("Formats should be found by name regardless of case")
+    @ParameterizedTest
+    @ValueSource(strings = {"csv", "CSV", "Csv"})
+    void formatShouldBeFoundIgnoringCase(String name) {
+        assertThat(TranscriptFormat.fromName(name)).isEqualTo(TranscriptFormat.CSV);
+    }
+
+    @DisplayName("Unknown format should throw UnsupportedExportFormatException")
+    @Test
+    void unknownFormatShouldThrow() {
+        assertThatThrownBy(() -> TranscriptFormat.fromName("xml"))
+                .isInstanceOf(UnsupportedExportFormatException.class);
+    }
+
+    private static MessageDto message(String content) {
+        return MessageDto.builder()
+                .guid(UUID.randomUUID())
+                .from("John Doe")
+                .avatar("avatar1")
+                .date("2021-01-01 14:32")
+                .content(content)
+                .build();
+    }
+}